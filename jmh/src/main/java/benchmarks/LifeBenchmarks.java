@@ -0,0 +1,190 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH versions of BenchmarkSuite's benchmarks, one method per operation. JMH won't run benchmarks from the default
+ * package and a package can't name the default package's classes, so each state asks BenchmarkSuite for a fixture
+ * through reflection once per trial and only calls it through LongSupplier while measuring. The whole operation
+ * is timed, so render, draw and paint include the generation stepped before them, unlike BenchmarkSuite.
+ * <p>
+ * Usage: java -jar jmh/target/benchmarks.jar [JMH options], such as -p engine=packed,hashlife -p size=256,4096.
+ * The results are written as JSON to jmh-result.json unless a result format or file is given.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class LifeBenchmarks {
+
+    /**
+     * the engine, workload and board a benchmark runs on, set with JMH's -p option
+     */
+    @State(Scope.Thread)
+    public abstract static class Board {
+        @Param({"packed"})
+        public String engine;
+        @Param({"soup"})
+        public String workload;
+        @Param({"1024"})
+        public int size;
+        @Param({"1"})
+        public int threads;
+        @Param({"B3/S23"})
+        public String rule;
+
+        // the fixture, and the operation it runs, once set up
+        private AutoCloseable fixture;
+        private MethodHandle reset;
+        LongSupplier operation;
+
+        /**
+         * getter method for the name of the benchmark in BenchmarkSuite
+         * @return the name
+         */
+        abstract String benchmark();
+
+        /**
+         * method to set the benchmark up through BenchmarkSuite
+         * @throws Throwable if BenchmarkSuite isn't on the class path or can't set it up
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws Throwable {
+            // the renderer benchmarks draw off screen, so no display is needed
+            System.setProperty("java.awt.headless", "true");
+            Object made = Class.forName("BenchmarkSuite").getMethod("fixture", String.class, String.class,
+                    String.class, int.class, int.class, String.class).invoke(null, benchmark(), engine, workload,
+                    size, threads, rule);
+            fixture = (AutoCloseable) made;
+            operation = (LongSupplier) made;
+            reset = MethodHandles.publicLookup().findVirtual(made.getClass(), "reset", MethodType.methodType(void.class));
+        }
+
+        /**
+         * method to load the workload again, so every iteration sees the same generations
+         * @throws Throwable if the fixture can't be reset
+         */
+        @Setup(Level.Iteration)
+        public void reload() throws Throwable {
+            reset.invoke(fixture);
+        }
+
+        /**
+         * method to stop any threads the engine started
+         * @throws Exception if the fixture can't be closed
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            fixture.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Step extends Board {
+        @Override
+        String benchmark() {
+            return "step";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Neighbors extends Board {
+        @Override
+        String benchmark() {
+            return "neighbors";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Render extends Board {
+        @Override
+        String benchmark() {
+            return "render";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Draw extends Board {
+        @Override
+        String benchmark() {
+            return "draw";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Paint extends Board {
+        @Override
+        String benchmark() {
+            return "paint";
+        }
+    }
+
+    @Benchmark
+    public long step(Step board) {
+        return board.operation.getAsLong();
+    }
+
+    @Benchmark
+    public long neighbors(Neighbors board) {
+        return board.operation.getAsLong();
+    }
+
+    @Benchmark
+    public long render(Render board) {
+        return board.operation.getAsLong();
+    }
+
+    @Benchmark
+    public long draw(Draw board) {
+        return board.operation.getAsLong();
+    }
+
+    @Benchmark
+    public long paint(Paint board) {
+        return board.operation.getAsLong();
+    }
+
+    /**
+     * runs JMH, writing JSON results unless the arguments ask for another format or file
+     * @param args JMH's own options
+     * @throws Exception if JMH fails
+     */
+    public static void main(String[] args) throws Exception {
+        boolean formatGiven = Arrays.stream(args).anyMatch(arg -> arg.equals("-rf") || arg.equals("-rff"));
+        String[] options = formatGiven ? args : concat(new String[] {"-rf", "json", "-rff", "jmh-result.json"}, args);
+        org.openjdk.jmh.Main.main(options);
+    }
+
+    /**
+     * method to join two arrays of arguments
+     * @param first the arguments that go first
+     * @param second the arguments that go after them
+     * @return the joined arguments
+     */
+    private static String[] concat(String[] first, String[] second) {
+        String[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
@@ -0,0 +1,476 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many independent boards at once for parameter sweeps, such as thousands of random soups under a rule,
+ * without a LifeUI or thread of their own for each. Every board is stepped on a single threaded engine until it
+ * dies out, settles into a still life or oscillator, or reaches its generation limit, and its result is handed
+ * back as soon as it is done rather than when the whole batch is.
+ * <p>
+ * Boards run on virtual threads when the JDK has them (21 and later) and on a fixed pool of daemon threads
+ * otherwise. Stepping is pure computation, so either way no more boards run at a time than the parallelism
+ * asked for, which defaults to the number of cores. A batch can be cancelled, which stops boards that are
+ * running at their next generation and drops the ones that haven't started.
+ * Usage: java BatchSimulator [boards] [size] [density] [generations] [rule] [parallelism]
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class BatchSimulator implements AutoCloseable {
+
+    // defaults for the command line sweep
+    public static final int DEFAULT_BOARDS = 1000;
+    public static final int DEFAULT_SIZE = 64;
+    public static final double DEFAULT_DENSITY = 0.35;
+    public static final long DEFAULT_GENERATIONS = 10_000;
+
+    // runs the boards, and bounds how many run at a time when it is a virtual thread per board
+    private final ExecutorService executor;
+    private final Semaphore running;
+    private final boolean virtual;
+    private final int parallelism;
+    // batches that haven't handed back every board yet, cancelled on close
+    private final Set<Batch> outstanding = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor for a simulator using every core, on virtual threads if the JDK has them
+     */
+    public BatchSimulator() {
+        this(Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    /**
+     * Constructor for a simulator running a given number of boards at a time
+     * @param parallelism the most boards stepped at once
+     * @param preferVirtual true to use virtual threads if the JDK has them, false for a fixed pool
+     */
+    public BatchSimulator(int parallelism, boolean preferVirtual) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        ExecutorService virtualExecutor = preferVirtual ? newVirtualExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        if (virtual) {
+            this.executor = virtualExecutor;
+            this.running = new Semaphore(parallelism);
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "batch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            // the pool itself is the bound
+            this.running = null;
+        }
+    }
+
+    /**
+     * method to make a virtual thread per task executor, looked up reflectively so this still builds and runs on
+     * JDK 17
+     * @return the executor, or null if the JDK has no virtual threads
+     */
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * getter method for whether the boards run on virtual threads
+     * @return true for virtual threads, false for a pool of platform threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * getter method for the most boards stepped at once
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * method to start running a batch of boards
+     * @param jobs the boards
+     * @return the batch, which hands back results as they complete
+     */
+    public Batch submit(List<Job> jobs) {
+        ExecutorCompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Result>> futures = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            futures.add(completion.submit(() -> {
+                if (running == null) {
+                    return run(job);
+                }
+                running.acquire();
+                try {
+                    return run(job);
+                } finally {
+                    running.release();
+                }
+            }));
+        }
+        Batch batch = new Batch(completion, futures, outstanding);
+        outstanding.add(batch);
+        return batch;
+    }
+
+    /**
+     * method to step one board until it settles or reaches its limit
+     * @param job the board
+     * @return its result
+     * @throws InterruptedException if the batch is cancelled while the board runs
+     */
+    static Result run(Job job) throws InterruptedException {
+        long start = System.nanoTime();
+        LifeEngine engine = Engines.create(job.engine, job.initial.getWidth(), job.initial.getHeight(), 1,
+                job.topology, job.rule);
+        engine.load(job.initial);
+        CycleDetector detector = new CycleDetector(job.history);
+        CycleDetector.Outcome outcome = detector.observe(engine.getGeneration(), engine.getHash());
+        while (outcome == CycleDetector.Outcome.RUNNING && engine.getGeneration() < job.maxGenerations) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            engine.step();
+            outcome = detector.observe(engine.getGeneration(), engine.getHash());
+        }
+        return new Result(job.id, outcome, outcome == CycleDetector.Outcome.RUNNING ? engine.getGeneration()
+                : detector.getCycleStart(), detector.getPeriod(), engine.getGeneration(),
+                engine.getStats().getPopulation(), System.nanoTime() - start);
+    }
+
+    /**
+     * method to stop taking boards and cancel the ones still running. Boards that haven't started are cancelled
+     * rather than dropped from the executor, so they still run as no-ops and are handed back, and a take after
+     * closing returns instead of waiting for boards that will never complete
+     */
+    @Override
+    public void close() {
+        for (Batch batch : outstanding) {
+            batch.cancel();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * a board to run, with what it is run under
+     */
+    public static final class Job {
+        // identifies the board in its result
+        private final long id;
+        private final BoardSnapshot initial;
+        private final Rule rule;
+        private final Topology topology;
+        private final String engine;
+        // the generation the board is stopped at if it hasn't settled, and the longest period looked for
+        private final long maxGenerations;
+        private final int history;
+
+        /**
+         * Constructor for a board to run
+         * @param id identifies the board in its result
+         * @param initial the starting cells
+         * @param rule the rule
+         * @param topology what lies beyond the edges
+         * @param engine the name of the engine, one of Engines.NAMES
+         * @param maxGenerations the generation to stop at if the board hasn't settled
+         * @param history the longest period looked for
+         */
+        public Job(long id, BoardSnapshot initial, Rule rule, Topology topology, String engine, long maxGenerations,
+                   int history) {
+            if (maxGenerations < 0) {
+                throw new IllegalArgumentException("Generations can't be negative: " + maxGenerations);
+            }
+            this.id = id;
+            this.initial = initial;
+            this.rule = rule;
+            this.topology = topology;
+            this.engine = engine;
+            this.maxGenerations = maxGenerations;
+            this.history = history;
+        }
+
+        /**
+         * method to make a random soup on the packed engine with dead edges
+         * @param id identifies the board, and seeds the soup together with the seed
+         * @param seed the seed of the sweep
+         * @param size the number of rows and columns
+         * @param density the chance of each cell starting alive
+         * @param rule the rule
+         * @param maxGenerations the generation to stop at if the board hasn't settled
+         * @return the job
+         */
+        public static Job randomSoup(long id, long seed, int size, double density, Rule rule, long maxGenerations) {
+            SplittableRandom random = new SplittableRandom(CycleDetector.mix64(seed) ^ id);
+            int words = BoardSnapshot.wordsPerRow(size);
+            long[] rows = new long[size * words];
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    if (random.nextDouble() < density) {
+                        rows[row * words + (col >>> 6)] |= 1L << col;
+                    }
+                }
+            }
+            return new Job(id, new BoardSnapshot(size, size, 0, rows), rule, Topology.DEAD, "packed",
+                    maxGenerations, CycleDetector.DEFAULT_HISTORY);
+        }
+
+        /**
+         * getter method for the id of the board
+         * @return the id
+         */
+        public long getId() {
+            return id;
+        }
+    }
+
+    /**
+     * what happened to a board
+     */
+    public static final class Result {
+        private final long id;
+        // how the board ended, RUNNING if it reached its limit without settling
+        private final CycleDetector.Outcome outcome;
+        // the generation it settled at, or the limit, its period, and the generations actually stepped
+        private final long lifetime;
+        private final long period;
+        private final long generations;
+        private final long population;
+        private final long nanos;
+
+        Result(long id, CycleDetector.Outcome outcome, long lifetime, long period, long generations, long population,
+               long nanos) {
+            this.id = id;
+            this.outcome = outcome;
+            this.lifetime = lifetime;
+            this.period = period;
+            this.generations = generations;
+            this.population = population;
+            this.nanos = nanos;
+        }
+
+        /**
+         * getter method for the id of the board
+         * @return the id
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * getter method for how the board ended
+         * @return the outcome, RUNNING if it reached its generation limit without settling
+         */
+        public CycleDetector.Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * getter method for the lifetime of the board, the first generation of its final cycle
+         * @return the lifetime, or the generation limit if it never settled
+         */
+        public long getLifetime() {
+            return lifetime;
+        }
+
+        /**
+         * getter method for the period the board settled into
+         * @return the period, 1 for a still life or an extinct board, 0 if it never settled
+         */
+        public long getPeriod() {
+            return period;
+        }
+
+        /**
+         * getter method for the generations stepped
+         * @return the generations
+         */
+        public long getGenerations() {
+            return generations;
+        }
+
+        /**
+         * getter method for the population of the last generation stepped
+         * @return the population
+         */
+        public long getPopulation() {
+            return population;
+        }
+
+        /**
+         * getter method for the time the board took to run
+         * @return the time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%d,%.3f", id, outcome.name().toLowerCase(Locale.ROOT),
+                    lifetime, period, generations, population, nanos / 1e6);
+        }
+    }
+
+    /**
+     * a submitted batch, handing back the results of its boards in the order they complete
+     */
+    public static final class Batch {
+        private final ExecutorCompletionService<Result> completion;
+        private final List<Future<Result>> futures;
+        // the simulator's batches still outstanding, left once every board has been handed back
+        private final Set<Batch> outstanding;
+        // results handed back so far, including boards that were cancelled or failed
+        private int taken;
+
+        private Batch(ExecutorCompletionService<Result> completion, List<Future<Result>> futures,
+                      Set<Batch> outstanding) {
+            this.completion = completion;
+            this.futures = futures;
+            this.outstanding = outstanding;
+        }
+
+        /**
+         * method to wait for the next board to complete. Boards that were cancelled are skipped, a board that
+         * failed is reported by throwing what it failed with
+         * @return the result, or null once every board has been handed back
+         * @throws InterruptedException if the waiting thread is interrupted
+         */
+        public Result take() throws InterruptedException {
+            while (taken < futures.size()) {
+                Future<Result> future = completion.take();
+                if (++taken == futures.size()) {
+                    outstanding.remove(this);
+                }
+                if (future.isCancelled()) {
+                    continue;
+                }
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof InterruptedException) {
+                        // cancelled while it ran
+                        continue;
+                    }
+                    throw new IllegalStateException("Board failed: " + e.getCause(), e.getCause());
+                }
+            }
+            return null;
+        }
+
+        /**
+         * method to cancel every board that hasn't completed yet
+         */
+        public void cancel() {
+            for (Future<Result> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        /**
+         * getter method for the number of boards in the batch
+         * @return the size
+         */
+        public int size() {
+            return futures.size();
+        }
+    }
+
+    /**
+     * runs a sweep of random soups and prints each result as a CSV row as it completes, then a summary
+     * @param args boards, size, density, generations, rule and parallelism
+     */
+    public static void main(String[] args) {
+        int boards = DEFAULT_BOARDS;
+        int size = DEFAULT_SIZE;
+        double density = DEFAULT_DENSITY;
+        long generations = DEFAULT_GENERATIONS;
+        Rule rule = Rule.CONWAY;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        try {
+            if (args.length >= 1) {
+                boards = Integer.parseInt(args[0]);
+            }
+            if (args.length >= 2) {
+                size = Integer.parseInt(args[1]);
+            }
+            if (args.length >= 3) {
+                density = Double.parseDouble(args[2]);
+            }
+            if (args.length >= 4) {
+                generations = Long.parseLong(args[3]);
+            }
+            if (args.length >= 5) {
+                rule = Rule.parse(args[4]);
+            }
+            if (args.length >= 6) {
+                parallelism = Integer.parseInt(args[5]);
+            }
+        } catch (IllegalArgumentException e) {
+            usage();
+        }
+        if (boards < 1 || size < 1 || generations < 0 || parallelism < 1 || !(density >= 0 && density <= 1)) {
+            usage();
+        }
+        List<Job> jobs = new ArrayList<>(boards);
+        long seed = System.nanoTime();
+        for (int id = 0; id < boards; id++) {
+            jobs.add(Job.randomSoup(id, seed, size, density, rule, generations));
+        }
+        PrintStream out = System.out;
+        try (BatchSimulator simulator = new BatchSimulator(parallelism, true)) {
+            System.err.printf(Locale.ROOT, "%d %dx%d soups at %.2f, %s, up to %d generations, %d at a time on %s threads%n",
+                    boards, size, size, density, rule, generations, parallelism,
+                    simulator.isVirtual() ? "virtual" : "platform");
+            long start = System.nanoTime();
+            Batch batch = simulator.submit(jobs);
+            long[] outcomes = new long[CycleDetector.Outcome.values().length];
+            long lifetimes = 0;
+            long stepped = 0;
+            out.println("id,outcome,lifetime,period,generations,population,ms");
+            Result result;
+            while ((result = batch.take()) != null) {
+                out.println(result);
+                outcomes[result.getOutcome().ordinal()]++;
+                lifetimes += result.getLifetime();
+                stepped += result.getGenerations();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf(Locale.ROOT, "%d boards in %.3f s, %.1f boards/s, %.3e generations/s%n", boards,
+                    seconds, boards / seconds, stepped / seconds);
+            System.err.printf(Locale.ROOT, "extinct %d, still life %d, oscillator %d, unsettled %d, mean lifetime %.1f%n",
+                    outcomes[CycleDetector.Outcome.EXTINCT.ordinal()],
+                    outcomes[CycleDetector.Outcome.STILL_LIFE.ordinal()],
+                    outcomes[CycleDetector.Outcome.OSCILLATOR.ordinal()],
+                    outcomes[CycleDetector.Outcome.RUNNING.ordinal()], lifetimes / (double) boards);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * method to print how the simulator is used and exit
+     */
+    private static void usage() {
+        System.err.println("Usage: java BatchSimulator [boards] [size] [density] [generations] [rule] [parallelism]");
+        System.exit(1);
+    }
+}
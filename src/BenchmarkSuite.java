@@ -0,0 +1,466 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Benchmarks for the engines and the renderer, run the way JMH runs them: each benchmark is warmed up for a
+ * few timed iterations, then measured over more, and the throughput of every measured iteration is kept so
+ * the spread can be seen. The results are written as JSON so runs can be kept and diffed over time.
+ * <p>
+ * Benchmarks: "step" times a generation of each engine; "neighbors" times a full scan of the board through
+ * LifeBoard.checkNeighbors and isAlive, the original cell by cell path; "render" times CellCanvas.refresh after
+ * a generation, the path updateGrid takes; "draw" times CellCanvas.draw of a snapshot, the pipelined path;
+ * "paint" times painting a whole frame of a fixed size canvas fitted to the board, which should cost about the
+ * same on every size of board.
+ * Workloads: a random soup half alive, the R-pentomino, the Gosper glider gun, the acorn and an empty board,
+ * each pattern centred on the board.
+ * <p>
+ * Usage: java BenchmarkSuite [--benchmarks step,neighbors,render,draw,paint] [--engines packed,sparse,...]
+ * [--workloads soup,rpentomino,...] [--sizes 19,256,...] [--threads 1,4] [--warmup 2] [--iterations 5]
+ * [--time milliseconds] [--rule B3/S23] [--out results.json]
+ * <p>
+ * The same operations are wrapped as JMH benchmarks in the jmh module, which builds with Maven and gets JMH's
+ * forking and dead code protection. This harness stays as the fallback that runs with nothing but javac.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class BenchmarkSuite {
+
+    // what is run when nothing else is asked for
+    static final String[] BENCHMARKS = {"step", "neighbors", "render", "draw", "paint"};
+    static final String[] WORKLOADS = {"soup", "rpentomino", "gosper", "acorn", "empty"};
+    static final int[] SIZES = {19, 256, 1024, 4096, 16384};
+    // largest board the renderer's update benchmarks run on, since they count every changed cell of a generation
+    static final int MAX_RENDER_SIZE = 4096;
+    // width and height of the canvas the paint benchmark draws
+    static final int PAINT_VIEWPORT = 800;
+
+    // the patterns, as RLE
+    private static final String R_PENTOMINO = "x = 3, y = 3\nb2o$2o$bo!";
+    private static final String ACORN = "x = 7, y = 3\nbo$3bo$2o2b3o!";
+    private static final String GOSPER_GUN = "x = 36, y = 9\n24bo$22bobo$12b2o6b2o12b2o$11bo3bo4b2o12b2o$"
+            + "2o8bo5bo3b2o$2o8bo3bob2o4bobo$10bo5bo7bo$11bo3bo$12b2o!";
+
+    /**
+     * one timed operation of a benchmark
+     */
+    private interface Operation {
+        /**
+         * runs the operation once
+         * @return the nanoseconds the measured part of it took
+         */
+        long run();
+    }
+
+    /**
+     * a benchmark set up for another harness to time, such as the JMH module. Its benchmarks are in a package
+     * and can't name the classes here, so they reach this through reflection once and then only through the
+     * interfaces it implements: getAsLong runs the operation once and returns the nanoseconds it measured
+     */
+    public static final class Fixture implements LongSupplier, AutoCloseable {
+        private final LifeEngine engine;
+        private final BoardSnapshot start;
+        private final Operation operation;
+
+        private Fixture(LifeEngine engine, BoardSnapshot start, Operation operation) {
+            this.engine = engine;
+            this.start = start;
+            this.operation = operation;
+        }
+
+        /**
+         * method to load the workload into the engine again, so every iteration sees the same generations
+         */
+        public void reset() {
+            engine.load(start);
+        }
+
+        @Override
+        public long getAsLong() {
+            return operation.run();
+        }
+
+        @Override
+        public void close() {
+            if (engine instanceof ParallelEngine) {
+                ((ParallelEngine) engine).shutdown();
+            }
+        }
+    }
+
+    /**
+     * the measurements of one benchmark on one engine, workload, size and thread count
+     */
+    private static class Result {
+        private final String benchmark;
+        private final String engine;
+        private final String workload;
+        private final int size;
+        private final int threads;
+        // operations per second of each measured iteration
+        private double[] scores = new double[0];
+        // why the benchmark couldn't run, or null
+        private String error;
+
+        private Result(String benchmark, String engine, String workload, int size, int threads) {
+            this.benchmark = benchmark;
+            this.engine = engine;
+            this.workload = workload;
+            this.size = size;
+            this.threads = threads;
+        }
+
+        private double mean() {
+            return Arrays.stream(scores).average().orElse(0);
+        }
+
+        private double stddev() {
+            double mean = mean();
+            return scores.length < 2 ? 0 : Math.sqrt(Arrays.stream(scores).map(s -> (s - mean) * (s - mean)).sum()
+                    / (scores.length - 1));
+        }
+    }
+
+    /**
+     * runs the benchmarks asked for and writes the results
+     * @param args the options described above
+     */
+    public static void main(String[] args) {
+        // the renderer benchmarks draw off screen, so no display is needed
+        System.setProperty("java.awt.headless", "true");
+        List<String> benchmarks = List.of(BENCHMARKS);
+        List<String> engines = List.of(Engines.NAMES);
+        List<String> workloads = List.of(WORKLOADS);
+        int[] sizes = SIZES;
+        int[] threads = {1, Runtime.getRuntime().availableProcessors()};
+        int warmup = 2;
+        int iterations = 5;
+        long iterationMillis = 500;
+        Path out = null;
+        Rule rule = Rule.CONWAY;
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--benchmarks" -> benchmarks = List.of(value.split(","));
+                    case "--engines" -> engines = List.of(value.split(","));
+                    case "--workloads" -> workloads = List.of(value.split(","));
+                    case "--sizes" -> sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    case "--threads" -> threads = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    case "--warmup" -> warmup = Integer.parseInt(value);
+                    case "--iterations" -> iterations = Integer.parseInt(value);
+                    case "--time" -> iterationMillis = Long.parseLong(value);
+                    case "--rule" -> rule = Rule.parse(value);
+                    case "--out" -> out = Path.of(value);
+                    default -> throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Usage: java BenchmarkSuite [--benchmarks " + String.join(",", BENCHMARKS)
+                    + "] [--engines " + String.join(",", Engines.NAMES) + "] [--workloads " + String.join(",", WORKLOADS)
+                    + "] [--sizes 19,256,...] [--threads 1,4] [--warmup n] [--iterations n] [--time ms] [--rule B3/S23] [--out file]");
+            System.exit(1);
+        }
+        threads = Arrays.stream(threads).filter(t -> t >= 1).distinct().toArray();
+
+        List<Result> results = new ArrayList<>();
+        for (String benchmark : benchmarks) {
+            for (String workload : workloads) {
+                for (int size : sizes) {
+                    if ((benchmark.equals("render") || benchmark.equals("draw")) && size > MAX_RENDER_SIZE) {
+                        continue;
+                    }
+                    // only the stepping benchmark is worth running on every engine and thread count
+                    List<String> benchEngines = benchmark.equals("step") ? engines : List.of("packed");
+                    for (String engine : benchEngines) {
+                        for (int t : threads) {
+                            if (t > 1 && !(benchmark.equals("step") && engine.equals("packed"))) {
+                                continue;
+                            }
+                            Result result = new Result(benchmark, engine, workload, size, t);
+                            run(result, rule, warmup, iterations, iterationMillis);
+                            results.add(result);
+                            System.err.println(result.error != null
+                                    ? String.format("%-9s %-9s %-10s %6d x%-2d  skipped: %s", benchmark, engine,
+                                            workload, size, t, result.error)
+                                    : String.format(Locale.ROOT, "%-9s %-9s %-10s %6d x%-2d %14.1f ops/s +- %.1f",
+                                            benchmark, engine, workload, size, t, result.mean(), result.stddev()));
+                        }
+                    }
+                }
+            }
+        }
+        String json = toJson(results, rule, warmup, iterations, iterationMillis);
+        if (out == null) {
+            System.out.println(json);
+        } else {
+            try {
+                Files.writeString(out, json, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.err.println("Can't write results: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * method to set up and time one benchmark, recording why if it can't be run
+     * @param result where the measurements go
+     * @param rule the rule the engine runs
+     * @param warmup the number of iterations thrown away
+     * @param iterations the number of iterations measured
+     * @param iterationMillis how long each iteration runs for
+     */
+    private static void run(Result result, Rule rule, int warmup, int iterations, long iterationMillis) {
+        LifeEngine engine = null;
+        try {
+            engine = Engines.create(result.engine, result.size, result.size, result.threads, Topology.DEAD, rule);
+            BoardSnapshot start = workload(result.workload, result.size);
+            Operation operation = operation(result.benchmark, engine);
+            for (int i = 0; i < warmup; i++) {
+                iteration(operation, engine, start, iterationMillis);
+            }
+            result.scores = new double[iterations];
+            for (int i = 0; i < iterations; i++) {
+                result.scores[i] = iteration(operation, engine, start, iterationMillis);
+            }
+        } catch (RuntimeException | OutOfMemoryError e) {
+            // too big for this machine, or an engine that doesn't take this board
+            result.error = e.toString();
+        } finally {
+            if (engine instanceof ParallelEngine) {
+                ((ParallelEngine) engine).shutdown();
+            }
+        }
+    }
+
+    /**
+     * method to set up one benchmark for another harness, with the workload already loaded
+     * @param benchmark one of BENCHMARKS
+     * @param engine one of Engines.NAMES
+     * @param workload one of WORKLOADS
+     * @param size the width and height of the board
+     * @param threads the number of threads the engine steps with
+     * @param rule the rule, such as B3/S23
+     * @return the fixture
+     */
+    public static Fixture fixture(String benchmark, String engine, String workload, int size, int threads, String rule) {
+        LifeEngine lifeEngine = Engines.create(engine, size, size, threads, Topology.DEAD, Rule.parse(rule));
+        Fixture fixture = new Fixture(lifeEngine, workload(workload, size), operation(benchmark, lifeEngine));
+        fixture.reset();
+        return fixture;
+    }
+
+    /**
+     * method to run an operation until an iteration's time is up
+     * @param operation the operation
+     * @param engine the engine, reloaded at the start so every iteration sees the same generations
+     * @param start the starting board
+     * @param iterationMillis how long to run for
+     * @return operations per second
+     */
+    private static double iteration(Operation operation, LifeEngine engine, BoardSnapshot start, long iterationMillis) {
+        engine.load(start);
+        long budget = iterationMillis * 1_000_000L;
+        long measured = 0;
+        long operations = 0;
+        long began = System.nanoTime();
+        // the wall clock limit stops benchmarks that time only part of each operation from running forever
+        while (measured < budget && System.nanoTime() - began < 4 * budget) {
+            measured += operation.run();
+            operations++;
+        }
+        return operations / (Math.max(measured, 1) / 1e9);
+    }
+
+    /**
+     * method to make the operation a benchmark times
+     * @param benchmark the name of the benchmark
+     * @param engine the engine it runs on
+     * @return the operation
+     */
+    private static Operation operation(String benchmark, LifeEngine engine) {
+        switch (benchmark) {
+            case "step":
+                return () -> {
+                    long before = System.nanoTime();
+                    engine.step();
+                    return System.nanoTime() - before;
+                };
+            case "neighbors": {
+                // the board shares the engine, which each iteration reloads with the workload
+                LifeBoard board = new LifeBoard(engine);
+                int[] sink = new int[1];
+                return () -> {
+                    long before = System.nanoTime();
+                    int alive = 0;
+                    for (int row = 0; row < engine.getHeight(); row++) {
+                        for (int col = 0; col < engine.getWidth(); col++) {
+                            if (board.isAlive(board.checkNeighbors(row, col), board.printBoard(row, col))) {
+                                alive++;
+                            }
+                        }
+                    }
+                    // keep the result live so the scan can't be optimized away
+                    sink[0] += alive;
+                    return System.nanoTime() - before;
+                };
+            }
+            case "render": {
+                CellCanvas canvas = new CellCanvas(engine, Color.GREEN, Color.RED);
+                return () -> {
+                    engine.step();
+                    long before = System.nanoTime();
+                    canvas.refresh();
+                    return System.nanoTime() - before;
+                };
+            }
+            case "draw": {
+                CellCanvas canvas = new CellCanvas(engine, Color.GREEN, Color.RED);
+                return () -> {
+                    engine.step();
+                    BoardSnapshot snapshot = engine.snapshot();
+                    long before = System.nanoTime();
+                    canvas.draw(snapshot);
+                    return System.nanoTime() - before;
+                };
+            }
+            case "paint": {
+                CellCanvas canvas = new CellCanvas(engine, Color.GREEN, Color.RED);
+                canvas.setSize(PAINT_VIEWPORT, PAINT_VIEWPORT);
+                canvas.fitTo(0, 0, engine.getHeight(), engine.getWidth());
+                BufferedImage target = new BufferedImage(PAINT_VIEWPORT, PAINT_VIEWPORT, BufferedImage.TYPE_INT_RGB);
+                return () -> {
+                    Graphics2D g = target.createGraphics();
+                    long before = System.nanoTime();
+                    canvas.paint(g);
+                    long took = System.nanoTime() - before;
+                    g.dispose();
+                    return took;
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown benchmark: " + benchmark);
+        }
+    }
+
+    /**
+     * method to build the starting board of a workload
+     * @param workload the name of the workload
+     * @param size the width and height of the board
+     * @return the board
+     */
+    static BoardSnapshot workload(String workload, int size) {
+        try {
+            switch (workload) {
+                case "soup": {
+                    // packed straight from random longs, a boolean[][] of the largest boards wouldn't fit
+                    Random random = new Random(size);
+                    int words = BoardSnapshot.wordsPerRow(size);
+                    long[] rows = new long[size * words];
+                    for (int i = 0; i < rows.length; i++) {
+                        rows[i] = random.nextLong();
+                        if (i % words == words - 1 && (size & 63) != 0) {
+                            rows[i] &= (1L << size) - 1;
+                        }
+                    }
+                    return new BoardSnapshot(size, size, 0, rows);
+                }
+                case "rpentomino":
+                    return HeadlessRunner.center(BoardIO.parseRle(R_PENTOMINO, workload), size, size);
+                case "gosper":
+                    return HeadlessRunner.center(BoardIO.parseRle(GOSPER_GUN, workload), size, size);
+                case "acorn":
+                    return HeadlessRunner.center(BoardIO.parseRle(ACORN, workload), size, size);
+                case "empty":
+                    return new BoardSnapshot(size, size, 0, new long[size * BoardSnapshot.wordsPerRow(size)]);
+                default:
+                    throw new IllegalArgumentException("Unknown workload: " + workload);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * method to write the results as JSON
+     * @param results the results
+     * @param rule the rule the engines ran
+     * @param warmup the number of warm up iterations
+     * @param iterations the number of measured iterations
+     * @param iterationMillis how long each iteration ran for
+     * @return the JSON
+     */
+    private static String toJson(List<Result> results, Rule rule, int warmup, int iterations, long iterationMillis) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"jdk\": ").append(quote(System.getProperty("java.version")))
+                .append(",\n  \"rule\": ").append(quote(rule.toString()))
+                .append(",\n  \"processors\": ").append(Runtime.getRuntime().availableProcessors())
+                .append(",\n  \"warmupIterations\": ").append(warmup)
+                .append(",\n  \"measurementIterations\": ").append(iterations)
+                .append(",\n  \"iterationMillis\": ").append(iterationMillis)
+                .append(",\n  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"benchmark\": ").append(quote(result.benchmark))
+                    .append(", \"engine\": ").append(quote(result.engine))
+                    .append(", \"workload\": ").append(quote(result.workload))
+                    .append(", \"size\": ").append(result.size)
+                    .append(", \"threads\": ").append(result.threads);
+            if (result.error != null) {
+                json.append(", \"error\": ").append(quote(result.error)).append("}");
+                continue;
+            }
+            json.append(", \"unit\": \"ops/s\"")
+                    .append(", \"score\": ").append(number(result.mean()))
+                    .append(", \"scoreStddev\": ").append(number(result.stddev()))
+                    .append(", \"cellsPerSecond\": ").append(number(result.mean() * result.size * result.size))
+                    .append(", \"iterations\": [");
+            for (int s = 0; s < result.scores.length; s++) {
+                json.append(s == 0 ? "" : ", ").append(number(result.scores[s]));
+            }
+            json.append("]}");
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * method to write a string as a JSON string
+     * @param text the string
+     * @return the quoted string
+     */
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * method to write a number for JSON, which has no infinity or NaN
+     * @param value the number
+     * @return the number as text
+     */
+    private static String number(double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.3f", value) : "null";
+    }
+}
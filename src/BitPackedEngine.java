@@ -0,0 +1,511 @@
+import java.util.Arrays;
+
+/**
+ * A generation engine that stores cells as packed long rows (64 cells per word) and computes each
+ * generation with bitwise full-adder neighbor counting. Every row carries a one-bit halo column on each side
+ * and the board carries a halo row above and below, so the inner loop never has to bounds check a neighbor.
+ * The halo is filled once per generation according to the topology, so wrapping and mirrored edges cost
+ * nothing inside the loop. Two buffers are swapped each generation so stepping allocates nothing.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class BitPackedEngine implements LifeEngine {
+
+    // dimensions of the board in cells
+    protected final int width;
+    protected final int height;
+    // number of long words in each packed row, including the halo bits
+    protected final int words;
+    // the current generation and the buffer the next generation is written into
+    protected long[] cells;
+    protected long[] next;
+    // per-word masks that keep the halo bits of the output rows cleared
+    protected final long[] mask;
+    // what lies beyond the edges of the board
+    protected final Topology topology;
+    // the birth and survival counts the generations are computed with
+    protected final Rule rule;
+    // tiles changed since the renderer last cleared them, lined up with the packed words
+    protected final ChangeSet changes;
+    // number of generations stepped since the last load
+    protected long generation;
+    // Zobrist-style hash of the cells, updated word by word as they change
+    protected long hash;
+    // live cells per tile, births and deaths, updated word by word as they change
+    protected final BoardStats stats;
+
+    /**
+     * Constructor to allocate both buffers for a board of the given size
+     * @param width the number of columns
+     * @param height the number of rows
+     */
+    public BitPackedEngine(int width, int height) {
+        this(width, height, Topology.DEAD);
+    }
+
+    /**
+     * Constructor to allocate both buffers for a board of the given size and edge behavior
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param topology what lies beyond the edges of the board
+     */
+    public BitPackedEngine(int width, int height, Topology topology) {
+        this(width, height, topology, Rule.CONWAY);
+    }
+
+    /**
+     * Constructor to allocate both buffers for a board of the given size, edge behavior and rule
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param topology what lies beyond the edges of the board
+     * @param rule the rule generations are computed with
+     */
+    public BitPackedEngine(int width, int height, Topology topology, Rule rule) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Board dimensions must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.topology = topology;
+        this.rule = rule;
+        // column c lives at bit c + 1, bit 0 and bit width + 1 are the halo columns
+        this.words = (width + 2 + 63) >>> 6;
+        if ((long) (height + 2) * words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board is too large for on-heap storage: " + width + "x" + height);
+        }
+        this.cells = new long[(height + 2) * words];
+        this.next = new long[(height + 2) * words];
+        this.mask = new long[words];
+        for (int w = 0; w < words; w++) {
+            // number of bits of this word that hold the left halo or a cell
+            int bits = Math.min(64, Math.max(0, width + 1 - (w << 6)));
+            mask[w] = bits == 64 ? -1L : (1L << bits) - 1;
+        }
+        mask[0] &= ~1L;
+        this.changes = new ChangeSet(width, height, 1);
+        this.stats = new BoardStats(width, height, 1);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    /**
+     * getter method for the edge behavior of the board
+     * @return the topology
+     */
+    public Topology getTopology() {
+        return topology;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * method to find the word holding a cell
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the index into the cells buffer
+     */
+    protected int wordIndex(int row, int col) {
+        return (row + 1) * words + ((col + 1) >>> 6);
+    }
+
+    @Override
+    public boolean get(int row, int col) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return false;
+        }
+        return (cells[wordIndex(row, col)] & (1L << (col + 1))) != 0;
+    }
+
+    @Override
+    public void set(int row, int col, boolean alive) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return;
+        }
+        changes.markCell(row, col);
+        int index = wordIndex(row, col);
+        long was = cells[index] & mask[index % words];
+        // shifts on a long only use the low six bits, so col + 1 selects the bit within the word
+        if (alive) {
+            cells[index] |= 1L << (col + 1);
+        } else {
+            cells[index] &= ~(1L << (col + 1));
+        }
+        long now = cells[index] & mask[index % words];
+        hash ^= CycleDetector.hashWord(index, was) ^ CycleDetector.hashWord(index, now);
+        stats.edit(row / ChangeSet.TILE_SIZE, index % words, was, now);
+    }
+
+    /**
+     * method to hash and count the whole board from scratch, after it has been loaded
+     */
+    protected void rehash() {
+        hash = 0;
+        stats.clear();
+        for (int index = words; index < (height + 1) * words; index++) {
+            long word = cells[index] & mask[index % words];
+            hash ^= CycleDetector.hashWord(index, word);
+            stats.add((index / words - 1) / ChangeSet.TILE_SIZE, index % words, word);
+        }
+    }
+
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public BoardStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void load(boolean[][] state) {
+        Arrays.fill(cells, 0L);
+        for (int row = 0; row < Math.min(height, state.length); row++) {
+            for (int col = 0; col < Math.min(width, state[row].length); col++) {
+                if (state[row][col]) {
+                    cells[wordIndex(row, col)] |= 1L << (col + 1);
+                }
+            }
+        }
+        rehash();
+        generation = 0;
+        changes.markAll();
+    }
+
+    @Override
+    public void load(BoardSnapshot snapshot) {
+        Arrays.fill(cells, 0L);
+        int in = snapshot.getWordsPerRow();
+        for (int row = 0; row < Math.min(height, snapshot.getHeight()); row++) {
+            int base = (row + 1) * words;
+            for (int w = 0; w < Math.min(in, words); w++) {
+                // shift a whole word right by the halo column, carrying its top bit into the next word
+                long word = snapshot.word(row, w);
+                cells[base + w] |= word << 1;
+                if (w + 1 < words) {
+                    cells[base + w + 1] |= word >>> 63;
+                }
+            }
+            for (int w = 0; w < words; w++) {
+                cells[base + w] &= mask[w];
+            }
+        }
+        rehash();
+        generation = snapshot.getGeneration();
+        changes.markAll();
+    }
+
+    @Override
+    public boolean[][] toArray() {
+        boolean[][] state = new boolean[height][width];
+        for (int row = 0; row < height; row++) {
+            int base = (row + 1) * words;
+            for (int col = 0; col < width; col++) {
+                state[row][col] = (cells[base + ((col + 1) >>> 6)] & (1L << (col + 1))) != 0;
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public long word(int row, int word) {
+        int base = (row + 1) * words;
+        // drop the left halo bit, pulling the first bit of the next word into the top of this one
+        long high = word + 1 < words ? cells[base + word + 1] << 63 : 0;
+        long bits = (cells[base + word] >>> 1) | high;
+        return (width & 63) != 0 && word == (width >>> 6) ? bits & ((1L << width) - 1) : bits;
+    }
+
+    @Override
+    public BoardSnapshot snapshot() {
+        int out = BoardSnapshot.wordsPerRow(width);
+        long[] rows = new long[height * out];
+        for (int row = 0; row < height; row++) {
+            int base = (row + 1) * words;
+            for (int w = 0; w < out; w++) {
+                // drop the left halo bit, pulling the first bit of the next word into the top of this one
+                long high = w + 1 < words ? cells[base + w + 1] << 63 : 0;
+                rows[row * out + w] = (cells[base + w] >>> 1) | high;
+            }
+            if ((width & 63) != 0) {
+                // the right halo bit lands just past the last column
+                rows[row * out + out - 1] &= (1L << width) - 1;
+            }
+        }
+        return new BoardSnapshot(width, height, generation, rows);
+    }
+
+    @Override
+    public void step() {
+        fillHalo();
+        stats.beginGeneration();
+        hash ^= stepRows(0, height);
+        swap();
+    }
+
+    /**
+     * method to fill the halo rows and columns of the current buffer from the cells they stand in for
+     */
+    protected void fillHalo() {
+        if (topology == Topology.DEAD) {
+            // the halo is never written, so it stays dead
+            return;
+        }
+        // halo columns first, so the halo rows copied below pick up the corners
+        boolean mirror = topology == Topology.MIRROR;
+        for (int row = 1; row <= height; row++) {
+            int base = row * words;
+            setHaloBit(base, 0, bitAt(base, mirror ? 1 : width));
+            setHaloBit(base, width + 1, bitAt(base, mirror ? width : 1));
+        }
+        int first = words;
+        int last = height * words;
+        int below = (height + 1) * words;
+        switch (topology) {
+            case TORUS:
+                System.arraycopy(cells, last, cells, 0, words);
+                System.arraycopy(cells, first, cells, below, words);
+                break;
+            case KLEIN:
+                reverseRow(last, 0);
+                reverseRow(first, below);
+                break;
+            case MIRROR:
+                System.arraycopy(cells, first, cells, 0, words);
+                System.arraycopy(cells, last, cells, below, words);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * method to read one bit of a packed row, halo bits included
+     * @param base offset of the row
+     * @param bit the bit index, column + 1
+     * @return true if the bit is set
+     */
+    private boolean bitAt(int base, int bit) {
+        return (cells[base + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * method to write one bit of a packed row, halo bits included
+     * @param base offset of the row
+     * @param bit the bit index, column + 1
+     * @param value the value of the bit
+     */
+    private void setHaloBit(int base, int bit, boolean value) {
+        if (value) {
+            cells[base + (bit >>> 6)] |= 1L << bit;
+        } else {
+            cells[base + (bit >>> 6)] &= ~(1L << bit);
+        }
+    }
+
+    /**
+     * method to copy a packed row, halo bits included, flipped left to right
+     * @param from offset of the row to copy
+     * @param to offset of the row to write
+     */
+    private void reverseRow(int from, int to) {
+        for (int bit = 0; bit <= width + 1; bit++) {
+            setHaloBit(to, width + 1 - bit, bitAt(from, bit));
+        }
+    }
+
+    /**
+     * method to write the next generation of a band of rows into the back buffer, marking the tiles that changed.
+     * Bands that start on a tile boundary can be stepped on different threads at the same time, so the change to
+     * the hash is returned rather than applied, and the statistics are only touched in the band's own tile rows
+     * @param fromRow the first row of the band
+     * @param toRow one past the last row of the band
+     * @return the XOR of the old and new keys of every word that changed
+     */
+    protected long stepRows(int fromRow, int toRow) {
+        long delta = 0;
+        for (int row = fromRow; row < toRow; row++) {
+            int mid = (row + 1) * words;
+            stepRow(cells, mid - words, mid, mid + words, next, mid, words, mask, rule);
+            int tileRow = row / ChangeSet.TILE_SIZE;
+            long born = 0;
+            long died = 0;
+            for (int w = 0; w < words; w++) {
+                // the halo bits of the current buffer are filled in, so compare only the cells
+                long was = cells[mid + w] & mask[w];
+                long now = next[mid + w];
+                if (now != was) {
+                    changes.markTile(tileRow, w);
+                    int wordBorn = Long.bitCount(now & ~was);
+                    int wordDied = Long.bitCount(was & ~now);
+                    stats.addToTile(tileRow, w, wordBorn - wordDied);
+                    born += wordBorn;
+                    died += wordDied;
+                    delta ^= CycleDetector.hashWord(mid + w, was) ^ CycleDetector.hashWord(mid + w, now);
+                }
+            }
+            stats.recordRow(tileRow, born, died);
+        }
+        return delta;
+    }
+
+    /**
+     * method to swap the buffers once every row of the next generation has been written
+     */
+    protected void swap() {
+        long[] temp = cells;
+        cells = next;
+        next = temp;
+        generation++;
+    }
+
+    /**
+     * method to compute one packed row of the next generation from the three rows around it
+     * @param src the buffer holding the current generation
+     * @param up offset of the row above
+     * @param mid offset of the row being computed
+     * @param down offset of the row below
+     * @param dst the buffer the next generation is written into
+     * @param out offset of the output row
+     * @param words number of words in each row
+     * @param mask per-word masks for the halo bits
+     * @param rule the rule to apply
+     */
+    static void stepRow(long[] src, int up, int mid, int down, long[] dst, int out, int words, long[] mask, Rule rule) {
+        stepWords(src, up, mid, down, dst, out, 0, words, words, mask, rule);
+    }
+
+    /**
+     * method to compute a run of words of one packed row of the next generation
+     * @param src the buffer holding the current generation
+     * @param up offset of the row above
+     * @param mid offset of the row being computed
+     * @param down offset of the row below
+     * @param dst the buffer the next generation is written into
+     * @param out offset of the output row
+     * @param fromWord the first word to compute
+     * @param toWord one past the last word to compute
+     * @param words number of words in each row
+     * @param mask per-word masks for the halo bits
+     * @param rule the rule to apply
+     */
+    static void stepWords(long[] src, int up, int mid, int down, long[] dst, int out, int fromWord, int toWord,
+                          int words, long[] mask, Rule rule) {
+        // previous, current and next word of the three rows, rolled along as we walk the row
+        long aPrev = 0, a = src[up + fromWord];
+        long mPrev = 0, m = src[mid + fromWord];
+        long bPrev = 0, b = src[down + fromWord];
+        if (fromWord > 0) {
+            aPrev = src[up + fromWord - 1];
+            mPrev = src[mid + fromWord - 1];
+            bPrev = src[down + fromWord - 1];
+        }
+        for (int w = fromWord; w < toWord; w++) {
+            long aNext = 0, mNext = 0, bNext = 0;
+            if (w + 1 < words) {
+                aNext = src[up + w + 1];
+                mNext = src[mid + w + 1];
+                bNext = src[down + w + 1];
+            }
+            // line up the west and east neighbors of every bit, carrying across word boundaries
+            long aw = (a << 1) | (aPrev >>> 63);
+            long ae = (a >>> 1) | (aNext << 63);
+            long mw = (m << 1) | (mPrev >>> 63);
+            long me = (m >>> 1) | (mNext << 63);
+            long bw = (b << 1) | (bPrev >>> 63);
+            long be = (b >>> 1) | (bNext << 63);
+
+            dst[out + w] = nextWord(aw, a, ae, mw, m, me, bw, b, be, rule) & mask[w];
+
+            aPrev = a;
+            a = aNext;
+            mPrev = m;
+            m = mNext;
+            bPrev = b;
+            b = bNext;
+        }
+    }
+
+    /**
+     * method to compute 64 cells of the next generation at once from their neighbors lined up bit for bit
+     * @param aw the row above shifted west
+     * @param a the row above
+     * @param ae the row above shifted east
+     * @param mw the middle row shifted west
+     * @param m the middle row, the cells themselves
+     * @param me the middle row shifted east
+     * @param bw the row below shifted west
+     * @param b the row below
+     * @param be the row below shifted east
+     * @return the 64 cells in the next generation
+     */
+    static long nextWord(long aw, long a, long ae, long mw, long m, long me, long bw, long b, long be) {
+        return nextWord(aw, a, ae, mw, m, me, bw, b, be, Rule.CONWAY);
+    }
+
+    /**
+     * method to compute 64 cells of the next generation under any rule. The neighbor counts come out of the
+     * adder as bit planes either way; Conway's rule is then a handful of operations and any other rule is
+     * matched count by count against its compiled masks
+     * @param aw the row above shifted west
+     * @param a the row above
+     * @param ae the row above shifted east
+     * @param mw the middle row shifted west
+     * @param m the middle row, the cells themselves
+     * @param me the middle row shifted east
+     * @param bw the row below shifted west
+     * @param b the row below
+     * @param be the row below shifted east
+     * @param rule the rule to apply
+     * @return the 64 cells in the next generation
+     */
+    static long nextWord(long aw, long a, long ae, long mw, long m, long me, long bw, long b, long be, Rule rule) {
+        // two bit sums of the row above (three cells), the row below (three cells) and the middle (two cells)
+        long a0 = aw ^ a ^ ae;
+        long a1 = (aw & a) | (ae & (aw ^ a));
+        long b0 = bw ^ b ^ be;
+        long b1 = (bw & b) | (be & (bw ^ b));
+        long m0 = mw ^ me;
+        long m1 = mw & me;
+
+        // add the three partial sums into the bit planes s0..s3 of the neighbor count
+        long s0 = a0 ^ b0 ^ m0;
+        long c0 = (a0 & b0) | (m0 & (a0 ^ b0));
+        long t = a1 ^ b1;
+        long u = m1 ^ c0;
+        long s1 = t ^ u;
+        long x = a1 & b1;
+        long y = m1 & c0;
+        long z = t & u;
+        long s2 = x ^ y ^ z;
+        long s3 = (x & y) | (z & (x | y));
+
+        if (rule.isConway()) {
+            // B3/S23: exactly three neighbors, or exactly two neighbors on a live cell
+            return s1 & ~s2 & ~s3 & (s0 | m);
+        }
+        return rule.apply(s0, s1, s2, s3, m);
+    }
+}
@@ -0,0 +1,506 @@
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reading and writing boards. The native format is a small header followed by the packed rows exactly as a
+ * BoardSnapshot holds them (one bit per cell), read and written through buffered file channels, with large
+ * files memory-mapped instead of copied. The standard RLE (.rle) and plaintext (.cells) pattern formats are
+ * supported for exchange with other Life programs, saves from older versions written with Java serialization
+ * can still be restored, and a HistoryJournal file restores the newest generation it holds.
+ * <p>
+ * Native layout, all big-endian: the magic "LIFE", an int version, int width, int height, long generation,
+ * then height rows of (width + 63) / 64 longs, column c of a row being bit c % 64 of word c / 64.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public final class BoardIO {
+
+    // "LIFE" in ASCII, the first four bytes of every native save
+    public static final int MAGIC = 0x4C494645;
+    // version of the native format written by this class
+    public static final int VERSION = 1;
+    // files bigger than this are memory-mapped when reading
+    public static final long MAP_THRESHOLD = 64L << 20;
+
+    // size of the header in bytes
+    private static final int HEADER_BYTES = 24;
+    // size of the buffer used to stream rows through a channel
+    private static final int BUFFER_BYTES = 1 << 20;
+    // first two bytes of a Java serialization stream, used by saves from older versions
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+    // largest side of a board an older save can hold, which is far past any board the older versions could show
+    private static final int LEGACY_MAX_SIDE = 1 << 16;
+    // longest line written to an RLE file, as the format recommends
+    private static final int RLE_LINE_LENGTH = 70;
+    // the header line of an RLE file, with the size and optionally the rule
+    private static final Pattern RLE_HEADER = Pattern.compile(
+            "x\\s*=\\s*(\\d+)\\s*,\\s*y\\s*=\\s*(\\d+)\\s*(?:,\\s*rule\\s*=\\s*([^,\\s]+).*)?", Pattern.CASE_INSENSITIVE);
+
+    private BoardIO() {
+    }
+
+    /**
+     * method to save a board, choosing the format from the file extension (.rle, .cells, anything else native)
+     * @param path the file to write
+     * @param snapshot the board to save
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, BoardSnapshot snapshot) throws IOException {
+        write(path, snapshot, Rule.CONWAY);
+    }
+
+    /**
+     * method to save a board run under a given rule, which only the RLE format has room to record
+     * @param path the file to write
+     * @param snapshot the board to save
+     * @param rule the rule the board is run under
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, BoardSnapshot snapshot, Rule rule) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".rle")) {
+            writeRle(path, snapshot, rule);
+        } else if (name.endsWith(".cells")) {
+            writeCells(path, snapshot);
+        } else {
+            writeBinary(path, snapshot);
+        }
+    }
+
+    /**
+     * method to load a board in any supported format, memory-mapping large native files
+     * @param path the file to read
+     * @return the board
+     * @throws IOException if the file can't be read or isn't a board
+     */
+    public static BoardSnapshot read(Path path) throws IOException {
+        return read(path, Files.size(path) > MAP_THRESHOLD);
+    }
+
+    /**
+     * method to load a board in any supported format
+     * @param path the file to read
+     * @param mapped true to memory-map a native file rather than read it through a buffer
+     * @return the board
+     * @throws IOException if the file can't be read or isn't a board
+     */
+    public static BoardSnapshot read(Path path, boolean mapped) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".rle")) {
+            return readRle(path);
+        }
+        if (name.endsWith(".cells")) {
+            return readCells(path);
+        }
+        int magic;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+                // keep reading until the magic is in or the file ends
+            }
+            magic = head.position() == 4 ? head.getInt(0) : 0;
+        }
+        if (magic == MAGIC) {
+            return readBinary(path, mapped);
+        }
+        if (magic == HistoryJournal.MAGIC) {
+            // a journal left by a run, resume from the newest generation it holds
+            return HistoryJournal.readLatest(path);
+        }
+        if (magic >>> 16 == SERIALIZATION_MAGIC) {
+            return readLegacy(path);
+        }
+        throw new IOException("Not a saved game: " + path.getFileName());
+    }
+
+    /**
+     * method to write a board in the native format, streaming the rows through a buffer
+     * @param path the file to write
+     * @param snapshot the board to save
+     * @throws IOException if the file can't be written
+     */
+    public static void writeBinary(Path path, BoardSnapshot snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(snapshot.getWidth()).putInt(snapshot.getHeight())
+                    .putLong(snapshot.getGeneration());
+            for (int row = 0; row < snapshot.getHeight(); row++) {
+                for (int w = 0; w < snapshot.getWordsPerRow(); w++) {
+                    if (buffer.remaining() < Long.BYTES) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putLong(snapshot.word(row, w));
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * method to read a board in the native format
+     * @param path the file to read
+     * @param mapped true to memory-map the file rather than read it through a buffer
+     * @return the board
+     * @throws IOException if the file can't be read or is damaged
+     */
+    public static BoardSnapshot readBinary(Path path, boolean mapped) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            fill(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a saved game: " + path.getFileName());
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported save version " + version + " in " + path.getFileName());
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            long generation = header.getLong();
+            long words = (long) BoardSnapshot.wordsPerRow(width) * height;
+            if (width < 1 || height < 1 || words > Integer.MAX_VALUE - 8
+                    || channel.size() < HEADER_BYTES + words * Long.BYTES) {
+                throw new IOException("Damaged save file: " + path.getFileName());
+            }
+            long[] rows = new long[(int) words];
+            if (mapped) {
+                // map the rows a region at a time, since a single mapping is limited to 2 GB
+                long position = HEADER_BYTES;
+                int done = 0;
+                while (done < rows.length) {
+                    int count = Math.min(rows.length - done, (Integer.MAX_VALUE - 8) / Long.BYTES);
+                    MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Long.BYTES);
+                    map.asLongBuffer().get(rows, done, count);
+                    done += count;
+                    position += (long) count * Long.BYTES;
+                }
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+                LongBuffer longs;
+                int done = 0;
+                while (done < rows.length) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), (long) (rows.length - done) * Long.BYTES));
+                    fill(channel, buffer);
+                    buffer.flip();
+                    longs = buffer.asLongBuffer();
+                    int count = longs.remaining();
+                    longs.get(rows, done, count);
+                    done += count;
+                }
+            }
+            return new BoardSnapshot(width, height, generation, rows);
+        }
+    }
+
+    /**
+     * method to write a board as RLE, leaving out the dead cells at the end of each row and the blank rows at the end
+     * @param path the file to write
+     * @param snapshot the board to save
+     * @throws IOException if the file can't be written
+     */
+    public static void writeRle(Path path, BoardSnapshot snapshot) throws IOException {
+        writeRle(path, snapshot, Rule.CONWAY);
+    }
+
+    /**
+     * method to write a board as RLE with the rule it is run under in the header
+     * @param path the file to write
+     * @param snapshot the board to save
+     * @param rule the rule
+     * @throws IOException if the file can't be written
+     */
+    public static void writeRle(Path path, BoardSnapshot snapshot, Rule rule) throws IOException {
+        try (var out = Channels.newWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.US_ASCII)) {
+            out.write("#C Generation " + snapshot.getGeneration() + "\n");
+            out.write("x = " + snapshot.getWidth() + ", y = " + snapshot.getHeight() + ", rule = " + rule + "\n");
+            StringBuilder line = new StringBuilder();
+            // end-of-row markers are held back so blank rows collapse into one counted run
+            int pendingRows = 0;
+            for (int row = 0; row < snapshot.getHeight(); row++) {
+                int col = 0;
+                while (col < snapshot.getWidth()) {
+                    boolean alive = snapshot.get(row, col);
+                    int run = 1;
+                    while (col + run < snapshot.getWidth() && snapshot.get(row, col + run) == alive) {
+                        run++;
+                    }
+                    col += run;
+                    if (!alive && col == snapshot.getWidth()) {
+                        // trailing dead cells are implied by the end of the row
+                        break;
+                    }
+                    if (pendingRows > 0) {
+                        appendRun(out, line, pendingRows, '$');
+                        pendingRows = 0;
+                    }
+                    appendRun(out, line, run, alive ? 'o' : 'b');
+                }
+                pendingRows++;
+            }
+            line.append('!');
+            out.write(line.toString());
+            out.write("\n");
+        }
+    }
+
+    /**
+     * method to read a board from RLE
+     * @param path the file to read
+     * @return the board
+     * @throws IOException if the file can't be read or isn't valid RLE
+     */
+    public static BoardSnapshot readRle(Path path) throws IOException {
+        return parseRle(Files.readString(path, StandardCharsets.US_ASCII), path.getFileName().toString());
+    }
+
+    /**
+     * method to read a board from RLE text, for patterns that aren't in a file
+     * @param text the RLE
+     * @param name what to call the pattern in error messages
+     * @return the board
+     * @throws IOException if the text isn't valid RLE
+     */
+    public static BoardSnapshot parseRle(String text, String name) throws IOException {
+        int width = -1;
+        int height = -1;
+        StringBuilder body = new StringBuilder();
+        for (String line : text.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            Matcher matcher = RLE_HEADER.matcher(trimmed);
+            if (width < 0 && matcher.matches()) {
+                try {
+                    width = Integer.parseInt(matcher.group(1));
+                    height = Integer.parseInt(matcher.group(2));
+                } catch (NumberFormatException e) {
+                    throw new IOException("RLE board too large in " + name + ": " + trimmed);
+                }
+                try {
+                    if (matcher.group(3) != null) {
+                        Rule.parse(matcher.group(3));
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unsupported rule in " + name + ": " + matcher.group(3));
+                }
+            } else {
+                body.append(trimmed);
+            }
+        }
+        if (width < 1 || height < 1) {
+            throw new IOException("Missing RLE header in " + name);
+        }
+        int words = BoardSnapshot.wordsPerRow(width);
+        // the header is only text, so check it asks for a board that fits in one array before allocating it
+        if ((long) words * height > Integer.MAX_VALUE - 8) {
+            throw new IOException("RLE board too large in " + name + ": " + width + "x" + height);
+        }
+        long[] rows = new long[height * words];
+        int row = 0;
+        int col = 0;
+        int count = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (Character.isDigit(c)) {
+                // a run longer than the board only reaches its edge, so cap it rather than let it overflow
+                count = (int) Math.min(count * 10L + (c - '0'), Integer.MAX_VALUE);
+                continue;
+            }
+            int run = Math.max(1, count);
+            count = 0;
+            if (c == '!') {
+                break;
+            } else if (c == '$') {
+                row = (int) Math.min((long) row + run, height);
+                col = 0;
+            } else if (c == 'b' || c == '.') {
+                col = (int) Math.min((long) col + run, width);
+            } else if (c == 'o' || Character.isLetter(c)) {
+                int end = (int) Math.min((long) col + run, width);
+                for (; col < end; col++) {
+                    if (row < height) {
+                        rows[row * words + (col >>> 6)] |= 1L << col;
+                    }
+                }
+            } else if (!Character.isWhitespace(c)) {
+                throw new IOException("Unexpected '" + c + "' in " + name);
+            }
+        }
+        return new BoardSnapshot(width, height, 0, rows);
+    }
+
+    /**
+     * method to find the rule a pattern file asks for, which only RLE files record
+     * @param path the file
+     * @return the rule in the RLE header, or Conway's rule if there is none
+     * @throws IOException if the file can't be read or names a rule that isn't supported
+     */
+    public static Rule readRule(Path path) throws IOException {
+        if (!path.getFileName().toString().toLowerCase().endsWith(".rle")) {
+            return Rule.CONWAY;
+        }
+        for (String line : Files.readAllLines(path, StandardCharsets.US_ASCII)) {
+            Matcher matcher = RLE_HEADER.matcher(line.trim());
+            if (matcher.matches()) {
+                try {
+                    return matcher.group(3) == null ? Rule.CONWAY : Rule.parse(matcher.group(3));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unsupported rule in " + path.getFileName() + ": " + matcher.group(3));
+                }
+            }
+        }
+        return Rule.CONWAY;
+    }
+
+    /**
+     * method to write a board in the plaintext format, one line per row with 'O' alive and '.' dead
+     * @param path the file to write
+     * @param snapshot the board to save
+     * @throws IOException if the file can't be written
+     */
+    public static void writeCells(Path path, BoardSnapshot snapshot) throws IOException {
+        try (var out = Channels.newWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.US_ASCII)) {
+            out.write("!Name: " + path.getFileName() + "\n");
+            out.write("!Generation " + snapshot.getGeneration() + "\n");
+            char[] line = new char[snapshot.getWidth() + 1];
+            line[line.length - 1] = '\n';
+            for (int row = 0; row < snapshot.getHeight(); row++) {
+                for (int col = 0; col < snapshot.getWidth(); col++) {
+                    line[col] = snapshot.get(row, col) ? 'O' : '.';
+                }
+                out.write(line);
+            }
+        }
+    }
+
+    /**
+     * method to read a board in the plaintext format, sized to the longest line
+     * @param path the file to read
+     * @return the board
+     * @throws IOException if the file can't be read
+     */
+    public static BoardSnapshot readCells(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        int width = 1;
+        for (String line : Files.readAllLines(path, StandardCharsets.US_ASCII)) {
+            if (!line.startsWith("!")) {
+                lines.add(line);
+                width = Math.max(width, line.length());
+            }
+        }
+        int words = BoardSnapshot.wordsPerRow(width);
+        int height = Math.max(1, lines.size());
+        long[] rows = new long[height * words];
+        for (int row = 0; row < lines.size(); row++) {
+            String line = lines.get(row);
+            for (int col = 0; col < line.length(); col++) {
+                if (line.charAt(col) == 'O' || line.charAt(col) == '*') {
+                    rows[row * words + (col >>> 6)] |= 1L << col;
+                }
+            }
+        }
+        return new BoardSnapshot(width, height, 0, rows);
+    }
+
+    /**
+     * method to read a save from an older version, which held a serialized boolean[][]. The stream is filtered
+     * so nothing but a boolean[][] of a sensible size is ever deserialized, since the file could hold anything
+     * @param path the file to read
+     * @return the board
+     * @throws IOException if the file can't be read or holds something else
+     */
+    private static BoardSnapshot readLegacy(Path path) throws IOException {
+        try (ObjectInputStream input = new ObjectInputStream(Files.newInputStream(path))) {
+            input.setObjectInputFilter(BoardIO::filterLegacy);
+            Object state = input.readObject();
+            if (!(state instanceof boolean[][])) {
+                throw new IOException("Not a saved game: " + path.getFileName());
+            }
+            return BoardSnapshot.of((boolean[][]) state);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Not a saved game: " + path.getFileName(), e);
+        }
+    }
+
+    /**
+     * method to decide what an older save may deserialize: the outer array of rows and the rows, no deeper, no
+     * longer than LEGACY_MAX_SIDE and with no more references than one per row
+     * @param info what is about to be deserialized
+     * @return whether it is allowed
+     */
+    private static ObjectInputFilter.Status filterLegacy(ObjectInputFilter.FilterInfo info) {
+        Class<?> type = info.serialClass();
+        if (info.depth() > 2 || info.arrayLength() > LEGACY_MAX_SIDE || info.references() > LEGACY_MAX_SIDE + 1
+                || (type != null && type != boolean[][].class && type != boolean[].class)) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+        return type == null ? ObjectInputFilter.Status.UNDECIDED : ObjectInputFilter.Status.ALLOWED;
+    }
+
+    /**
+     * method to add a run to an RLE body, wrapping lines before they get too long
+     * @param out where full lines go
+     * @param line the line being built
+     * @param run the length of the run
+     * @param tag the run's tag
+     * @throws IOException if the line can't be written
+     */
+    private static void appendRun(Writer out, StringBuilder line, int run, char tag) throws IOException {
+        String item = run == 1 ? String.valueOf(tag) : run + String.valueOf(tag);
+        if (line.length() + item.length() > RLE_LINE_LENGTH) {
+            out.write(line.toString());
+            out.write("\n");
+            line.setLength(0);
+        }
+        line.append(item);
+    }
+
+    /**
+     * method to write out everything in a buffer and empty it
+     * @param channel the channel to write to
+     * @param buffer the buffer, in write mode
+     * @throws IOException if the channel can't be written
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * method to read from a channel until a buffer is full
+     * @param channel the channel to read from
+     * @param buffer the buffer, in write mode
+     * @throws IOException if the channel ends first
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Save file ends early");
+            }
+        }
+    }
+}
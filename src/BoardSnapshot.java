@@ -0,0 +1,137 @@
+/**
+ * An immutable copy of a board at one generation, with cells packed 64 to a long (column c of a row is bit
+ * c % 64 of word c / 64). Snapshots can be handed between threads freely, which is what lets the renderer draw
+ * one generation while the simulation is already computing the next.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public final class BoardSnapshot {
+
+    // dimensions of the board, the words in each packed row and the generation the snapshot was taken at
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long generation;
+    // the packed rows, never written after construction
+    private final long[] rows;
+
+    /**
+     * Constructor for a snapshot that takes ownership of an array of packed rows
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param generation the generation of the board
+     * @param rows the packed rows, which must not be changed afterwards
+     */
+    BoardSnapshot(int width, int height, long generation, long[] rows) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = wordsPerRow(width);
+        this.generation = generation;
+        this.rows = rows;
+    }
+
+    /**
+     * method to take a snapshot of any engine one cell at a time
+     * @param engine the engine to copy
+     * @return the snapshot
+     */
+    public static BoardSnapshot of(LifeEngine engine) {
+        int width = engine.getWidth();
+        int words = wordsPerRow(width);
+        long[] rows = new long[engine.getHeight() * words];
+        for (int row = 0; row < engine.getHeight(); row++) {
+            for (int col = 0; col < width; col++) {
+                if (engine.get(row, col)) {
+                    rows[row * words + (col >>> 6)] |= 1L << col;
+                }
+            }
+        }
+        return new BoardSnapshot(width, engine.getHeight(), engine.getGeneration(), rows);
+    }
+
+    /**
+     * method to pack a 2D array of cells into a snapshot at generation 0, sized to the longest row
+     * @param state the cells to pack
+     * @return the snapshot
+     */
+    public static BoardSnapshot of(boolean[][] state) {
+        int width = 1;
+        for (boolean[] row : state) {
+            width = Math.max(width, row.length);
+        }
+        int words = wordsPerRow(width);
+        long[] rows = new long[Math.max(1, state.length) * words];
+        for (int row = 0; row < state.length; row++) {
+            for (int col = 0; col < state[row].length; col++) {
+                if (state[row][col]) {
+                    rows[row * words + (col >>> 6)] |= 1L << col;
+                }
+            }
+        }
+        return new BoardSnapshot(width, Math.max(1, state.length), 0, rows);
+    }
+
+    /**
+     * method to work out how many longs a packed row of a given width takes
+     * @param width the number of columns
+     * @return the words per row
+     */
+    static int wordsPerRow(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    /**
+     * getter method for the number of columns
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * getter method for the number of rows
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * getter method for the number of longs in each packed row
+     * @return the words per row
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * getter method for the generation the snapshot was taken at
+     * @return the generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * method to read 64 cells of a row at once
+     * @param row the row
+     * @param word the word of the row, covering columns word * 64 to word * 64 + 63
+     * @return the packed cells
+     */
+    public long word(int row, int word) {
+        return rows[row * wordsPerRow + word];
+    }
+
+    /**
+     * method to read a single cell
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return alive or dead (true or false)
+     */
+    public boolean get(int row, int col) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return false;
+        }
+        return (rows[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+    }
+}
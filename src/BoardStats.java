@@ -0,0 +1,399 @@
+import java.util.Arrays;
+
+/**
+ * Population statistics of a board kept up to date as it changes: the live cells in each 64x64 tile, and so the
+ * population and density of any tile, the births and deaths of the last generation and the bounding box of the
+ * live cells. The packed engines already compare every word of a row before and after a generation, so they
+ * pass each word that changed to record, and the statistics cost a few bit counts per changed word instead of
+ * a pass over the board.
+ * <p>
+ * Tiles line up with the engine's ChangeSet, shifted left by the same column offset. Different tile rows can be
+ * recorded from different threads at the same time, which is how ParallelEngine's bands use it, since the
+ * counts are kept per tile row and only added up when asked for.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class BoardStats {
+
+    // side of a tile in cells, the same as ChangeSet's
+    public static final int TILE_SIZE = ChangeSet.TILE_SIZE;
+
+    /**
+     * the smallest rectangle of cells holding every live cell
+     */
+    public static final class Bounds {
+        private final int top;
+        private final int left;
+        private final int bottom;
+        private final int right;
+
+        Bounds(int top, int left, int bottom, int right) {
+            this.top = top;
+            this.left = left;
+            this.bottom = bottom;
+            this.right = right;
+        }
+
+        /**
+         * getter method for the first row with a live cell
+         * @return the row
+         */
+        public int getTop() {
+            return top;
+        }
+
+        /**
+         * getter method for the first column with a live cell
+         * @return the column
+         */
+        public int getLeft() {
+            return left;
+        }
+
+        /**
+         * getter method for the last row with a live cell
+         * @return the row
+         */
+        public int getBottom() {
+            return bottom;
+        }
+
+        /**
+         * getter method for the last column with a live cell
+         * @return the column
+         */
+        public int getRight() {
+            return right;
+        }
+
+        /**
+         * getter method for the number of rows the box spans
+         * @return the rows
+         */
+        public int getRows() {
+            return bottom - top + 1;
+        }
+
+        /**
+         * getter method for the number of columns the box spans
+         * @return the columns
+         */
+        public int getCols() {
+            return right - left + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "rows " + top + "-" + bottom + ", columns " + left + "-" + right;
+        }
+    }
+
+    // size of the board and how many columns left of the board the first tile starts
+    private final int width;
+    private final int height;
+    private final int colOffset;
+    // dimensions of the board in tiles
+    private final int tileRows;
+    private final int tileCols;
+    // live cells in each tile, and in each row of tiles
+    private final int[] tileCounts;
+    private final long[] rowCounts;
+    // births and deaths in each row of tiles during the last generation
+    private final long[] rowBirths;
+    private final long[] rowDeaths;
+    // false for statistics counted from a snapshot, which can't know the births and deaths
+    private final boolean incremental;
+
+    /**
+     * Constructor for the statistics of an empty board
+     * @param width the number of columns on the board
+     * @param height the number of rows on the board
+     * @param colOffset how many columns left of the board the first tile starts
+     */
+    public BoardStats(int width, int height, int colOffset) {
+        this(width, height, colOffset, true);
+    }
+
+    private BoardStats(int width, int height, int colOffset, boolean incremental) {
+        this.width = width;
+        this.height = height;
+        this.colOffset = colOffset;
+        this.tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileCols = (width + colOffset + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileCounts = new int[tileRows * tileCols];
+        this.rowCounts = new long[tileRows];
+        this.rowBirths = new long[tileRows];
+        this.rowDeaths = new long[tileRows];
+        this.incremental = incremental;
+    }
+
+    /**
+     * method to count the statistics of a snapshot, for engines that don't keep them as they step. Births and
+     * deaths are left at zero
+     * @param snapshot the snapshot
+     * @return the statistics
+     */
+    public static BoardStats of(BoardSnapshot snapshot) {
+        BoardStats stats = new BoardStats(snapshot.getWidth(), snapshot.getHeight(), 0, false);
+        for (int row = 0; row < snapshot.getHeight(); row++) {
+            for (int w = 0; w < snapshot.getWordsPerRow(); w++) {
+                stats.add(row / TILE_SIZE, w, snapshot.word(row, w));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * method to forget every count, before a board is loaded and counted again with add
+     */
+    public void clear() {
+        Arrays.fill(tileCounts, 0);
+        Arrays.fill(rowCounts, 0);
+        Arrays.fill(rowBirths, 0);
+        Arrays.fill(rowDeaths, 0);
+    }
+
+    /**
+     * method to start a new generation, forgetting the births and deaths of the last one. Called before the
+     * rows are stepped, not from the threads stepping them
+     */
+    public void beginGeneration() {
+        Arrays.fill(rowBirths, 0);
+        Arrays.fill(rowDeaths, 0);
+    }
+
+    /**
+     * method to count the live cells of a word of a tile, when a board is loaded
+     * @param tileRow the row of the tile
+     * @param tileCol the column of the tile
+     * @param word the 64 cells of the tile's row that the word holds
+     */
+    public void add(int tileRow, int tileCol, long word) {
+        if (tileCol < tileCols && word != 0) {
+            int count = Long.bitCount(word);
+            tileCounts[tileRow * tileCols + tileCol] += count;
+            rowCounts[tileRow] += count;
+        }
+    }
+
+    /**
+     * method to count a word of a tile that was edited, which changes the counts but isn't a birth or death
+     * @param tileRow the row of the tile
+     * @param tileCol the column of the tile
+     * @param was the cells before
+     * @param now the cells after
+     */
+    public void edit(int tileRow, int tileCol, long was, long now) {
+        if (tileCol < tileCols) {
+            int delta = Long.bitCount(now) - Long.bitCount(was);
+            tileCounts[tileRow * tileCols + tileCol] += delta;
+            rowCounts[tileRow] += delta;
+        }
+    }
+
+    /**
+     * method to count a word of a tile that a generation changed
+     * @param tileRow the row of the tile
+     * @param tileCol the column of the tile
+     * @param was the cells before the generation
+     * @param now the cells after it
+     */
+    public void record(int tileRow, int tileCol, long was, long now) {
+        if (tileCol < tileCols) {
+            int born = Long.bitCount(now & ~was);
+            int died = Long.bitCount(was & ~now);
+            tileCounts[tileRow * tileCols + tileCol] += born - died;
+            rowCounts[tileRow] += born - died;
+            rowBirths[tileRow] += born;
+            rowDeaths[tileRow] += died;
+        }
+    }
+
+    /**
+     * method to change the count of one tile by what a generation did to it, for engines that add up the births
+     * and deaths of a row themselves and pass them to recordRow. Cheaper than record in the inner loop of a step
+     * @param tileRow the row of the tile
+     * @param tileCol the column of the tile
+     * @param delta the births less the deaths in the tile
+     */
+    public void addToTile(int tileRow, int tileCol, int delta) {
+        if (tileCol < tileCols) {
+            tileCounts[tileRow * tileCols + tileCol] += delta;
+        }
+    }
+
+    /**
+     * method to count the births and deaths of a row of a generation, whose tiles were counted with addToTile
+     * @param tileRow the row of tiles the row is in
+     * @param born the cells born in the row
+     * @param died the cells that died in the row
+     */
+    public void recordRow(int tileRow, long born, long died) {
+        rowCounts[tileRow] += born - died;
+        rowBirths[tileRow] += born;
+        rowDeaths[tileRow] += died;
+    }
+
+    /**
+     * getter method for whether the statistics are kept up to date as the board steps, and so have births and
+     * deaths
+     * @return true if they are
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * getter method for the number of live cells
+     * @return the population
+     */
+    public long getPopulation() {
+        long population = 0;
+        for (long count : rowCounts) {
+            population += count;
+        }
+        return population;
+    }
+
+    /**
+     * getter method for whether there are no live cells
+     * @return true if the board is empty
+     */
+    public boolean isEmpty() {
+        for (long count : rowCounts) {
+            if (count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * getter method for the cells born in the last generation
+     * @return the births, 0 if the statistics aren't incremental
+     */
+    public long getBirths() {
+        long births = 0;
+        for (long count : rowBirths) {
+            births += count;
+        }
+        return births;
+    }
+
+    /**
+     * getter method for the cells that died in the last generation
+     * @return the deaths, 0 if the statistics aren't incremental
+     */
+    public long getDeaths() {
+        long deaths = 0;
+        for (long count : rowDeaths) {
+            deaths += count;
+        }
+        return deaths;
+    }
+
+    /**
+     * getter method for the number of rows of tiles
+     * @return the tile rows
+     */
+    public int getTileRows() {
+        return tileRows;
+    }
+
+    /**
+     * getter method for the number of columns of tiles
+     * @return the tile columns
+     */
+    public int getTileCols() {
+        return tileCols;
+    }
+
+    /**
+     * getter method for how many columns left of the board the first tile starts
+     * @return the offset
+     */
+    public int getColOffset() {
+        return colOffset;
+    }
+
+    /**
+     * getter method for the live cells in a tile
+     * @param tileRow the row of the tile
+     * @param tileCol the column of the tile
+     * @return the count
+     */
+    public int getTileCount(int tileRow, int tileCol) {
+        return tileCounts[tileRow * tileCols + tileCol];
+    }
+
+    /**
+     * getter method for the fraction of a tile's cells that are alive, counting only the part of the tile that
+     * is on the board
+     * @param tileRow the row of the tile
+     * @param tileCol the column of the tile
+     * @return the density, from 0 to 1
+     */
+    public double getTileDensity(int tileRow, int tileCol) {
+        int rows = Math.min(height, (tileRow + 1) * TILE_SIZE) - tileRow * TILE_SIZE;
+        int cols = Math.min(width, (tileCol + 1) * TILE_SIZE - colOffset) - Math.max(0, tileCol * TILE_SIZE - colOffset);
+        return rows * cols == 0 ? 0 : getTileCount(tileRow, tileCol) / (double) (rows * cols);
+    }
+
+    /**
+     * method to find the smallest rectangle holding every live cell. The tile counts narrow it down to the
+     * outermost occupied tiles, and only the cells of those tiles are looked at
+     * @param engine the engine whose board the statistics are of
+     * @return the bounds, or null if the board is empty
+     */
+    public Bounds getBoundingBox(LifeEngine engine) {
+        int firstRow = -1;
+        int lastRow = -1;
+        int firstCol = tileCols;
+        int lastCol = -1;
+        for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+            if (rowCounts[tileRow] == 0) {
+                continue;
+            }
+            if (firstRow < 0) {
+                firstRow = tileRow;
+            }
+            lastRow = tileRow;
+            for (int tileCol = 0; tileCol < tileCols; tileCol++) {
+                if (tileCounts[tileRow * tileCols + tileCol] != 0) {
+                    firstCol = Math.min(firstCol, tileCol);
+                    lastCol = Math.max(lastCol, tileCol);
+                }
+            }
+        }
+        if (firstRow < 0) {
+            return null;
+        }
+        int top = Integer.MAX_VALUE;
+        int bottom = -1;
+        int left = Integer.MAX_VALUE;
+        int right = -1;
+        for (int tileRow = firstRow; tileRow <= lastRow; tileRow++) {
+            for (int tileCol = firstCol; tileCol <= lastCol; tileCol++) {
+                boolean edge = tileRow == firstRow || tileRow == lastRow || tileCol == firstCol || tileCol == lastCol;
+                if (!edge || tileCounts[tileRow * tileCols + tileCol] == 0) {
+                    continue;
+                }
+                int fromRow = tileRow * TILE_SIZE;
+                int toRow = Math.min(height, fromRow + TILE_SIZE);
+                int fromCol = Math.max(0, tileCol * TILE_SIZE - colOffset);
+                int toCol = Math.min(width, (tileCol + 1) * TILE_SIZE - colOffset);
+                for (int row = fromRow; row < toRow; row++) {
+                    for (int col = fromCol; col < toCol; col++) {
+                        if (engine.get(row, col)) {
+                            top = Math.min(top, row);
+                            bottom = Math.max(bottom, row);
+                            left = Math.min(left, col);
+                            right = Math.max(right, col);
+                        }
+                    }
+                }
+            }
+        }
+        return new Bounds(top, left, bottom, right);
+    }
+}
@@ -0,0 +1,425 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A single component that draws the board. Only the part of the board on screen is drawn, into the int raster of
+ * a BufferedImage the size of the component, so the cost of a frame depends on the pixels in view rather than the
+ * size of the board or on Swing components. Zoomed in, each pixel is coloured from the cell under it. Zoomed out
+ * until a block of a DensityPyramid is at most two pixels across, each pixel is shaded by how many cells of the
+ * block under it are alive, from the level whose blocks are about a pixel across; any block with a live cell is
+ * shaded a little so lone patterns don't vanish. The mouse wheel zooms around the cursor, dragging pans, and a
+ * click is turned into a cell coordinate with a little arithmetic.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+@SuppressWarnings("serial")
+public class CellCanvas extends JComponent {
+
+    // largest preferred size of the canvas in pixels, bigger boards start zoomed out
+    private static final int MAX_PREFERRED = 855;
+    // how far a single notch of the mouse wheel zooms
+    private static final double ZOOM_STEP = 1.25;
+    // limits of the zoom in pixels per cell
+    private static final double MAX_SCALE = 100;
+    private static final double MIN_SCALE = 1e-4;
+    // below this many pixels per cell the grid lines are left out
+    private static final double GRID_LINE_SCALE = 6;
+    // number of shades between the dead and live colours that blocks are drawn with
+    private static final int SHADES = 256;
+    // cells left round the live area when the view is fitted to it
+    private static final int FIT_MARGIN = 2;
+
+    /**
+     * listener for clicks on a cell
+     */
+    public interface CellClickListener {
+        /**
+         * called when a cell is clicked
+         * @param row the row of the cell
+         * @param col the column of the cell
+         */
+        void cellClicked(int row, int col);
+    }
+
+    // the engine being drawn, and the live cells in each block of it
+    private final LifeEngine engine;
+    private final DensityPyramid pyramid;
+    // the cells as refresh last copied them from the engine, packed like a BoardSnapshot's rows. Paint reads these
+    // rather than the engine, which the simulation thread may already be stepping again
+    private final long[] cells;
+    private final int words;
+    // the visible part of the board, one pixel per pixel of the component
+    private BufferedImage frame;
+    private int[] pixels;
+    // the cell or block column under each pixel column of the area being drawn, kept between paints
+    private int[] under = new int[0];
+    // colors of live and dead cells as packed RGB, and the shades between them for blocks
+    private final int aliveRGB;
+    private final int deadRGB;
+    private final int[] shades;
+    // pixels per cell and the screen position of the top left corner of the board
+    private double scale;
+    private double offsetX;
+    private double offsetY;
+    // where a drag started, so a drag that moves isn't mistaken for a click
+    private Point dragStart;
+    private boolean dragged;
+    private CellClickListener clickListener;
+    // the snapshot last drawn by draw, or null if the pyramid was last updated from the engine
+    private BoardSnapshot lastSnapshot;
+
+    /**
+     * Constructor for a canvas drawing an engine
+     * @param engine the engine to draw
+     * @param alive the color of live cells
+     * @param dead the color of dead cells
+     */
+    public CellCanvas(LifeEngine engine, Color alive, Color dead) {
+        this.engine = engine;
+        this.pyramid = new DensityPyramid(engine.getWidth(), engine.getHeight());
+        this.words = BoardSnapshot.wordsPerRow(engine.getWidth());
+        if ((long) engine.getHeight() * words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board is too large to draw: " + engine.getWidth() + "x"
+                    + engine.getHeight());
+        }
+        this.cells = new long[engine.getHeight() * words];
+        this.aliveRGB = alive.getRGB() & 0xFFFFFF;
+        this.deadRGB = dead.getRGB() & 0xFFFFFF;
+        this.shades = new int[SHADES];
+        for (int i = 0; i < SHADES; i++) {
+            shades[i] = blend(deadRGB, aliveRGB, i / (double) (SHADES - 1));
+        }
+        this.scale = Math.max(MIN_SCALE, Math.min(45, (double) MAX_PREFERRED / Math.max(engine.getWidth(), engine.getHeight())));
+        setPreferredSize(new Dimension((int) Math.ceil(Math.min(MAX_PREFERRED, engine.getWidth() * scale)),
+                (int) Math.ceil(Math.min(MAX_PREFERRED, engine.getHeight() * scale))));
+        setOpaque(true);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+                dragged = false;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                // pan by however far the mouse moved since the last event
+                offsetX += e.getX() - dragStart.x;
+                offsetY += e.getY() - dragStart.y;
+                dragged |= dragStart.distance(e.getPoint()) > 0;
+                dragStart = e.getPoint();
+                repaint();
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (!dragged && clickListener != null) {
+                    int col = (int) Math.floor((e.getX() - offsetX) / scale);
+                    int row = (int) Math.floor((e.getY() - offsetY) / scale);
+                    if (row >= 0 && row < engine.getHeight() && col >= 0 && col < engine.getWidth()) {
+                        clickListener.cellClicked(row, col);
+                    }
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                // keep the cell under the cursor in place while zooming
+                double factor = Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation());
+                double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+                offsetX = e.getX() - (e.getX() - offsetX) * newScale / scale;
+                offsetY = e.getY() - (e.getY() - offsetY) * newScale / scale;
+                scale = newScale;
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+        refresh();
+    }
+
+    /**
+     * method to mix two packed RGB colors
+     * @param from the color at 0
+     * @param to the color at 1
+     * @param amount how far from the first color to the second
+     * @return the mixed color
+     */
+    private static int blend(int from, int to, double amount) {
+        int rgb = 0;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int a = (from >>> shift) & 0xFF;
+            int b = (to >>> shift) & 0xFF;
+            rgb |= (int) Math.round(a + (b - a) * amount) << shift;
+        }
+        return rgb;
+    }
+
+    /**
+     * setter method for the listener told about clicks on cells
+     * @param listener the listener
+     */
+    public void setCellClickListener(CellClickListener listener) {
+        this.clickListener = listener;
+    }
+
+    /**
+     * getter method for the number of pixels per cell
+     * @return the zoom
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * method to copy the regions the engine marked as changed, count them again and repaint only those parts of
+     * the screen. Called while the engine isn't stepping, such as from updateGrid while the simulation thread
+     * waits for it
+     */
+    public void refresh() {
+        lastSnapshot = null;
+        ChangeSet changes = engine.getChanges();
+        changes.forEachDirty(this::redrawRegion);
+        changes.clear();
+    }
+
+    /**
+     * method to copy a rectangle of cells from the engine, count it into the pyramid and schedule a repaint of
+     * where it is on screen
+     * @param top the top row of the region
+     * @param left the left column of the region
+     * @param rows the number of rows in the region
+     * @param cols the number of columns in the region
+     */
+    private void redrawRegion(int top, int left, int rows, int cols) {
+        for (int row = top; row < top + rows; row++) {
+            int base = row * words;
+            for (int col = left; col < left + cols; col++) {
+                if (engine.get(row, col)) {
+                    cells[base + (col >>> 6)] |= 1L << col;
+                } else {
+                    cells[base + (col >>> 6)] &= ~(1L << col);
+                }
+            }
+        }
+        pyramid.recount(cells, words, top, left, rows, cols);
+        repaintCells(top, left, rows, cols);
+    }
+
+    /**
+     * method to redraw a single cell from the engine, for clicks. If snapshots were being drawn the copy of the
+     * cells fell behind the engine, so everything the engine changed since is brought up to date as well
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    public void refreshCell(int row, int col) {
+        if (lastSnapshot != null) {
+            refresh();
+        } else {
+            redrawRegion(row, col, 1, 1);
+        }
+    }
+
+    /**
+     * method to draw a snapshot handed over by the simulation thread. Only the blocks that differ from the
+     * previously drawn snapshot are counted again, and only the area around them is repainted. Finding them is
+     * one pass over the packed words of the two snapshots, a 64th of the cells
+     * @param snapshot the snapshot to draw
+     */
+    public void draw(BoardSnapshot snapshot) {
+        BoardSnapshot previous = lastSnapshot;
+        lastSnapshot = snapshot;
+        if (previous == null || previous.getWidth() != snapshot.getWidth() || previous.getHeight() != snapshot.getHeight()) {
+            // nothing to compare against, so count everything
+            pyramid.load(snapshot);
+            repaint();
+            return;
+        }
+        BoardStats.Bounds changed = pyramid.update(previous, snapshot);
+        if (changed != null) {
+            repaintCells(changed.getTop(), changed.getLeft(), changed.getRows(), changed.getCols());
+        }
+    }
+
+    /**
+     * method to schedule a repaint of where a rectangle of cells is on screen. Zoomed out, a pixel is shaded
+     * from whichever block is under its centre, so the whole of every block the rectangle touches is repainted
+     * @param top the top row of the rectangle
+     * @param left the left column of the rectangle
+     * @param rows the number of rows in the rectangle
+     * @param cols the number of columns in the rectangle
+     */
+    private void repaintCells(int top, int left, int rows, int cols) {
+        int size = drawsBlocks() ? DensityPyramid.blockSize(pyramid.levelFor(1 / scale)) : 1;
+        long fromRow = Math.floorDiv(top, size) * (long) size;
+        long fromCol = Math.floorDiv(left, size) * (long) size;
+        long toRow = (Math.floorDiv(top + rows - 1, size) + 1) * (long) size;
+        long toCol = (Math.floorDiv(left + cols - 1, size) + 1) * (long) size;
+        double x = Math.max(-1, Math.min(getWidth() + 1, offsetX + fromCol * scale));
+        double y = Math.max(-1, Math.min(getHeight() + 1, offsetY + fromRow * scale));
+        double right = Math.max(-1, Math.min(getWidth() + 1, offsetX + toCol * scale));
+        double bottom = Math.max(-1, Math.min(getHeight() + 1, offsetY + toRow * scale));
+        if (right > x && bottom > y) {
+            repaint((int) Math.floor(x), (int) Math.floor(y),
+                    (int) Math.ceil(right - x) + 2, (int) Math.ceil(bottom - y) + 2);
+        }
+    }
+
+    /**
+     * getter method for whether the view is zoomed out far enough to draw from the pyramid rather than the cells,
+     * once a level 0 block is no more than two pixels across
+     * @return true if blocks are drawn
+     */
+    private boolean drawsBlocks() {
+        return 1 / scale >= DensityPyramid.BLOCK_SIZE / 2.0;
+    }
+
+    /**
+     * method to zoom and pan so a rectangle of cells fills the canvas, keeping its proportions
+     * @param top the top row of the rectangle
+     * @param left the left column of the rectangle
+     * @param rows the number of rows in the rectangle
+     * @param cols the number of columns in the rectangle
+     */
+    public void fitTo(int top, int left, int rows, int cols) {
+        int viewWidth = getWidth() > 0 ? getWidth() : getPreferredSize().width;
+        int viewHeight = getHeight() > 0 ? getHeight() : getPreferredSize().height;
+        double fit = Math.min(viewWidth / (cols + 2.0 * FIT_MARGIN), viewHeight / (rows + 2.0 * FIT_MARGIN));
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, fit));
+        offsetX = viewWidth / 2.0 - (left + cols / 2.0) * scale;
+        offsetY = viewHeight / 2.0 - (top + rows / 2.0) * scale;
+        repaint();
+    }
+
+    /**
+     * method to zoom and pan onto the live cells of the engine, found from its statistics. The engine mustn't be
+     * stepping while this runs
+     * @return false if there are no live cells, leaving the view as it was
+     */
+    public boolean fitToLiveArea() {
+        BoardStats.Bounds bounds = engine.getStats().getBoundingBox(engine);
+        if (bounds == null) {
+            return false;
+        }
+        fitTo(bounds.getTop(), bounds.getLeft(), bounds.getRows(), bounds.getCols());
+        return true;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int viewWidth = getWidth();
+        int viewHeight = getHeight();
+        if (viewWidth <= 0 || viewHeight <= 0) {
+            return;
+        }
+        if (frame == null || frame.getWidth() != viewWidth || frame.getHeight() != viewHeight) {
+            frame = new BufferedImage(viewWidth, viewHeight, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        }
+        // only the part of the screen being repainted is drawn
+        Rectangle view = new Rectangle(0, 0, viewWidth, viewHeight);
+        Rectangle area = g.getClipBounds() == null ? view : g.getClipBounds().intersection(view);
+        if (area.isEmpty()) {
+            return;
+        }
+        Color background = getBackground() == null ? Color.DARK_GRAY : getBackground();
+        drawArea(area.x, area.y, area.width, area.height, background.getRGB() & 0xFFFFFF);
+        g.drawImage(frame, 0, 0, null);
+        if (scale >= GRID_LINE_SCALE) {
+            // only the lines that cross the visible part of the board
+            g.setColor(Color.BLACK);
+            int x = (int) Math.round(offsetX);
+            int y = (int) Math.round(offsetY);
+            int w = (int) Math.round(engine.getWidth() * scale);
+            int h = (int) Math.round(engine.getHeight() * scale);
+            int firstCol = Math.max(0, (int) Math.floor(-offsetX / scale));
+            int lastCol = Math.min(engine.getWidth(), (int) Math.ceil((viewWidth - offsetX) / scale));
+            int firstRow = Math.max(0, (int) Math.floor(-offsetY / scale));
+            int lastRow = Math.min(engine.getHeight(), (int) Math.ceil((viewHeight - offsetY) / scale));
+            for (int col = firstCol; col <= lastCol; col++) {
+                int lineX = (int) Math.round(offsetX + col * scale);
+                g.drawLine(lineX, Math.max(0, y), lineX, Math.min(viewHeight, y + h));
+            }
+            for (int row = firstRow; row <= lastRow; row++) {
+                int lineY = (int) Math.round(offsetY + row * scale);
+                g.drawLine(Math.max(0, x), lineY, Math.min(viewWidth, x + w), lineY);
+            }
+        }
+    }
+
+    /**
+     * method to draw a rectangle of the screen into the frame. The cell or block under each pixel column is
+     * worked out once, a run of pixels over the same cell or block is looked up once, and a pixel row over the
+     * same cells as the row above is copied from it, so zoomed in the cost is the cells in view and zoomed out
+     * the pixels
+     * @param x the left of the rectangle in pixels
+     * @param y the top of the rectangle in pixels
+     * @param w the width of the rectangle in pixels
+     * @param h the height of the rectangle in pixels
+     * @param backgroundRGB the color off the board
+     */
+    private void drawArea(int x, int y, int w, int h, int backgroundRGB) {
+        boolean blocks = drawsBlocks();
+        int level = blocks ? pyramid.levelFor(1 / scale) : 0;
+        int size = blocks ? DensityPyramid.blockSize(level) : 1;
+        int columns = blocks ? pyramid.getLevelWidth(level) : engine.getWidth();
+        int rows = blocks ? pyramid.getLevelHeight(level) : engine.getHeight();
+        if (under.length < w) {
+            under = new int[w];
+        }
+        for (int i = 0; i < w; i++) {
+            double col = Math.floor((x + i + 0.5 - offsetX) / scale / size);
+            under[i] = col >= 0 && col < columns ? (int) col : -1;
+        }
+        int viewWidth = frame.getWidth();
+        int lastRow = Integer.MIN_VALUE;
+        for (int j = 0; j < h; j++) {
+            int base = (y + j) * viewWidth + x;
+            double rowPosition = Math.floor((y + j + 0.5 - offsetY) / scale / size);
+            int row = rowPosition >= 0 && rowPosition < rows ? (int) rowPosition : -1;
+            if (row == lastRow) {
+                System.arraycopy(pixels, base - viewWidth, pixels, base, w);
+                continue;
+            }
+            lastRow = row;
+            int lastCol = Integer.MIN_VALUE;
+            int rgb = backgroundRGB;
+            for (int i = 0; i < w; i++) {
+                int col = under[i];
+                if (col != lastCol) {
+                    lastCol = col;
+                    if (row < 0 || col < 0) {
+                        rgb = backgroundRGB;
+                    } else if (blocks) {
+                        rgb = shade(level, row, col);
+                    } else {
+                        boolean alive = lastSnapshot != null ? lastSnapshot.get(row, col)
+                                : (cells[row * words + (col >>> 6)] & (1L << col)) != 0;
+                        rgb = alive ? aliveRGB : deadRGB;
+                    }
+                }
+                pixels[base + i] = rgb;
+            }
+        }
+    }
+
+    /**
+     * method to find the color of a block, from its density
+     * @param level the level of the block
+     * @param row the row of the block
+     * @param col the column of the block
+     * @return the color as packed RGB
+     */
+    private int shade(int level, int row, int col) {
+        if (pyramid.getCount(level, row, col) == 0) {
+            return deadRGB;
+        }
+        return shades[1 + (int) Math.round(pyramid.getDensity(level, row, col) * (SHADES - 2))];
+    }
+}
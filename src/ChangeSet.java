@@ -0,0 +1,175 @@
+import java.util.Arrays;
+
+/**
+ * The set of tiles of a board whose cells changed since the set was last cleared. Engines mark tiles as they
+ * step and renderers redraw only the marked regions and then clear them, so drawing a frame costs in proportion
+ * to what changed. Tiles are TILE_SIZE cells square, shifted left by a column offset so they can line up with
+ * the words of a packed row. Different tile rows can be marked from different threads at the same time.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class ChangeSet {
+
+    // side of a tile in cells
+    public static final int TILE_SIZE = 64;
+
+    /**
+     * visitor for the dirty regions of a change set
+     */
+    public interface RegionVisitor {
+        /**
+         * called once for each dirty rectangle of cells
+         * @param row the top row of the region
+         * @param col the left column of the region
+         * @param rows the number of rows in the region
+         * @param cols the number of columns in the region
+         */
+        void visit(int row, int col, int rows, int cols);
+    }
+
+    // size of the board and the column where the first tile starts, as a negative offset
+    private final int width;
+    private final int height;
+    private final int colOffset;
+    // dimensions of the board in tiles
+    private final int tileRows;
+    private final int tileCols;
+    // a flag per tile and a flag per row of tiles, so clean rows are skipped quickly
+    private final boolean[] dirty;
+    private final boolean[] rowDirty;
+    // set when every cell should be treated as changed
+    private volatile boolean all;
+
+    /**
+     * Constructor for a change set with tiles starting at the first column
+     * @param width the number of columns on the board
+     * @param height the number of rows on the board
+     */
+    public ChangeSet(int width, int height) {
+        this(width, height, 0);
+    }
+
+    /**
+     * Constructor for a change set whose tiles start a few columns left of the board
+     * @param width the number of columns on the board
+     * @param height the number of rows on the board
+     * @param colOffset how many columns left of the board the first tile starts
+     */
+    public ChangeSet(int width, int height, int colOffset) {
+        this.width = width;
+        this.height = height;
+        this.colOffset = colOffset;
+        this.tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileCols = (width + colOffset + TILE_SIZE - 1) / TILE_SIZE;
+        this.dirty = new boolean[tileRows * tileCols];
+        this.rowDirty = new boolean[tileRows];
+        this.all = true;
+    }
+
+    /**
+     * method to mark a tile as changed
+     * @param tileRow the row of the tile
+     * @param tileCol the column of the tile
+     */
+    public void markTile(int tileRow, int tileCol) {
+        if (tileCol < tileCols) {
+            dirty[tileRow * tileCols + tileCol] = true;
+            rowDirty[tileRow] = true;
+        }
+    }
+
+    /**
+     * method to mark the tile holding a cell as changed
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    public void markCell(int row, int col) {
+        if (row >= 0 && row < height && col >= 0 && col < width) {
+            markTile(row / TILE_SIZE, (col + colOffset) / TILE_SIZE);
+        }
+    }
+
+    /**
+     * method to mark the whole board as changed
+     */
+    public void markAll() {
+        all = true;
+    }
+
+    /**
+     * getter method for whether the whole board is marked
+     * @return true if every cell should be treated as changed
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * method to visit each dirty region, joining neighboring dirty tiles of a row into one rectangle
+     * @param visitor the visitor
+     */
+    public void forEachDirty(RegionVisitor visitor) {
+        if (all) {
+            visitor.visit(0, 0, height, width);
+            return;
+        }
+        for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+            if (!rowDirty[tileRow]) {
+                continue;
+            }
+            int base = tileRow * tileCols;
+            int row = tileRow * TILE_SIZE;
+            int rows = Math.min(TILE_SIZE, height - row);
+            int tileCol = 0;
+            while (tileCol < tileCols) {
+                if (!dirty[base + tileCol]) {
+                    tileCol++;
+                    continue;
+                }
+                int start = tileCol;
+                while (tileCol < tileCols && dirty[base + tileCol]) {
+                    tileCol++;
+                }
+                int col = Math.max(0, start * TILE_SIZE - colOffset);
+                int end = Math.min(width, tileCol * TILE_SIZE - colOffset);
+                if (end > col) {
+                    visitor.visit(row, col, rows, end - col);
+                }
+            }
+        }
+    }
+
+    /**
+     * method to count the tiles marked as changed
+     * @return the number of dirty tiles, or every tile when the whole board is marked
+     */
+    public int getDirtyTileCount() {
+        if (all) {
+            return dirty.length;
+        }
+        int count = 0;
+        for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+            if (rowDirty[tileRow]) {
+                for (int tileCol = 0; tileCol < tileCols; tileCol++) {
+                    if (dirty[tileRow * tileCols + tileCol]) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * method to forget every change, once it has been drawn
+     */
+    public void clear() {
+        for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+            if (rowDirty[tileRow] || all) {
+                Arrays.fill(dirty, tileRow * tileCols, (tileRow + 1) * tileCols, false);
+                rowDirty[tileRow] = false;
+            }
+        }
+        all = false;
+    }
+}
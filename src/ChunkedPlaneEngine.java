@@ -0,0 +1,380 @@
+import java.util.Arrays;
+
+/**
+ * An engine for an unbounded plane. Live cells are kept in 64x64 chunks of packed rows, keyed by chunk
+ * coordinate in a primitive long map, so memory follows the number of live chunks rather than any board size.
+ * Chunks are created when a pattern grows into them and dropped as soon as they empty out.
+ * The width and height given to the constructor describe a window onto the plane, which is what load, toArray,
+ * get and set work on, and the window can be moved anywhere with setViewOrigin.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class ChunkedPlaneEngine implements LifeEngine {
+
+    // side of a chunk in cells, one long per row
+    public static final int CHUNK_SIZE = 64;
+    // most emptied chunks kept for reuse, anything beyond this is left to the garbage collector
+    private static final int MAX_SPARE = 4096;
+
+    // size of the window onto the plane and the plane coordinates of its top left cell
+    private final int width;
+    private final int height;
+    private long viewRow;
+    private long viewCol;
+    // the live chunks of the current generation and the map the next generation is built in
+    private LongKeyMap<long[]> chunks = new LongKeyMap<>();
+    private LongKeyMap<long[]> nextChunks = new LongKeyMap<>();
+    // chunks that emptied out, kept for reuse so stepping rarely allocates
+    private long[][] spare = new long[16][];
+    private int spareCount;
+    // scratch rows of the 66 row neighborhood of the chunk being stepped, with its west and east edge bits
+    private final long[] rows = new long[CHUNK_SIZE + 2];
+    private final long[] westBits = new long[CHUNK_SIZE + 2];
+    private final long[] eastBits = new long[CHUNK_SIZE + 2];
+    // the window is marked wholesale whenever it may have changed
+    private final ChangeSet changes;
+    // the birth and survival counts the generations are computed with
+    private final Rule rule;
+    // number of generations stepped since the last load
+    private long generation;
+    // Zobrist-style hash of the whole plane, updated row by row as chunks change
+    private long hash;
+
+    /**
+     * Constructor for an empty plane viewed through a window at the origin
+     * @param width the number of columns in the window
+     * @param height the number of rows in the window
+     */
+    public ChunkedPlaneEngine(int width, int height) {
+        this(width, height, Rule.CONWAY);
+    }
+
+    /**
+     * Constructor for an empty plane run under a given rule, viewed through a window at the origin
+     * @param width the number of columns in the window
+     * @param height the number of rows in the window
+     * @param rule the rule generations are computed with, which can't give birth on zero neighbors
+     */
+    public ChunkedPlaneEngine(int width, int height, Rule rule) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Board dimensions must be positive: " + width + "x" + height);
+        }
+        if (rule.birthOnZero()) {
+            // the whole empty plane would come alive at once
+            throw new IllegalArgumentException("The unbounded engine can't run B0 rules: " + rule);
+        }
+        this.rule = rule;
+        this.width = width;
+        this.height = height;
+        this.changes = new ChangeSet(width, height);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * method to move the window so its top left cell is at a given plane coordinate
+     * @param row the plane row of the top of the window
+     * @param col the plane column of the left of the window
+     */
+    public void setViewOrigin(long row, long col) {
+        this.viewRow = row;
+        this.viewCol = col;
+        changes.markAll();
+    }
+
+    /**
+     * getter method for the plane row at the top of the window
+     * @return the row
+     */
+    public long getViewRow() {
+        return viewRow;
+    }
+
+    /**
+     * getter method for the plane column at the left of the window
+     * @return the column
+     */
+    public long getViewCol() {
+        return viewCol;
+    }
+
+    /**
+     * getter method for the number of chunks holding live cells
+     * @return the chunk count
+     */
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * method to count every live cell on the plane
+     * @return the population
+     */
+    public long getPopulation() {
+        long population = 0;
+        for (int slot = 0; slot < chunks.capacity(); slot++) {
+            long[] chunk = chunks.valueAt(slot);
+            if (chunk != null) {
+                for (long row : chunk) {
+                    population += Long.bitCount(row);
+                }
+            }
+        }
+        return population;
+    }
+
+    @Override
+    public boolean get(int row, int col) {
+        return getCell(viewRow + row, viewCol + col);
+    }
+
+    @Override
+    public void set(int row, int col, boolean alive) {
+        setCell(viewRow + row, viewCol + col, alive);
+        changes.markCell(row, col);
+    }
+
+    /**
+     * method to read a cell anywhere on the plane
+     * @param row the plane row
+     * @param col the plane column
+     * @return alive or dead (true or false)
+     */
+    public boolean getCell(long row, long col) {
+        long[] chunk = chunks.get(key(Math.floorDiv(row, CHUNK_SIZE), Math.floorDiv(col, CHUNK_SIZE)));
+        return chunk != null && (chunk[Math.floorMod(row, CHUNK_SIZE)] & (1L << Math.floorMod(col, CHUNK_SIZE))) != 0;
+    }
+
+    /**
+     * method to set a cell anywhere on the plane, creating or dropping its chunk as needed
+     * @param row the plane row
+     * @param col the plane column
+     * @param alive live or dead cell
+     */
+    public void setCell(long row, long col, boolean alive) {
+        long key = key(Math.floorDiv(row, CHUNK_SIZE), Math.floorDiv(col, CHUNK_SIZE));
+        int r = Math.floorMod(row, CHUNK_SIZE);
+        long bit = 1L << Math.floorMod(col, CHUNK_SIZE);
+        long[] chunk = chunks.get(key);
+        if (alive) {
+            if (chunk == null) {
+                chunk = takeSpare();
+                chunks.put(key, chunk);
+            }
+            hash ^= CycleDetector.hashWord(key * CHUNK_SIZE + r, chunk[r]);
+            chunk[r] |= bit;
+            hash ^= CycleDetector.hashWord(key * CHUNK_SIZE + r, chunk[r]);
+        } else if (chunk != null) {
+            hash ^= CycleDetector.hashWord(key * CHUNK_SIZE + r, chunk[r]);
+            chunk[r] &= ~bit;
+            hash ^= CycleDetector.hashWord(key * CHUNK_SIZE + r, chunk[r]);
+            if (isEmpty(chunk)) {
+                recycle(chunks.remove(key));
+            }
+        }
+    }
+
+    @Override
+    public void load(boolean[][] state) {
+        recycleAll(chunks);
+        hash = 0;
+        for (int row = 0; row < Math.min(height, state.length); row++) {
+            for (int col = 0; col < Math.min(width, state[row].length); col++) {
+                if (state[row][col]) {
+                    setCell(viewRow + row, viewCol + col, true);
+                }
+            }
+        }
+        generation = 0;
+        changes.markAll();
+    }
+
+    @Override
+    public void load(BoardSnapshot snapshot) {
+        LifeEngine.super.load(snapshot);
+        generation = snapshot.getGeneration();
+    }
+
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean[][] toArray() {
+        boolean[][] state = new boolean[height][width];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                state[row][col] = getCell(viewRow + row, viewCol + col);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public void step() {
+        for (int slot = 0; slot < chunks.capacity(); slot++) {
+            long[] chunk = chunks.valueAt(slot);
+            if (chunk == null) {
+                continue;
+            }
+            long key = chunks.keyAt(slot);
+            int chunkRow = (int) (key >> 32);
+            int chunkCol = (int) key;
+            // live cells on an edge or corner can cause births in the chunk beyond it
+            long or = 0;
+            for (long row : chunk) {
+                or |= row;
+            }
+            for (int dr = -1; dr <= 1; dr++) {
+                long edge = dr < 0 ? chunk[0] : dr > 0 ? chunk[CHUNK_SIZE - 1] : or;
+                for (int dc = -1; dc <= 1; dc++) {
+                    long side = dc < 0 ? 1L : dc > 0 ? 1L << (CHUNK_SIZE - 1) : -1L;
+                    long neighbor = key(chunkRow + dr, chunkCol + dc);
+                    if ((dr == 0 && dc == 0) || ((edge & side) != 0 && chunks.get(neighbor) == null)) {
+                        if (nextChunks.get(neighbor) == null) {
+                            stepChunk(chunkRow + dr, chunkCol + dc);
+                        }
+                    }
+                }
+            }
+        }
+        recycleAll(chunks);
+        LongKeyMap<long[]> temp = chunks;
+        chunks = nextChunks;
+        nextChunks = temp;
+        generation++;
+        changes.markAll();
+    }
+
+    /**
+     * method to compute the next generation of one chunk into the next map, leaving it out if it is empty
+     * @param chunkRow the chunk row
+     * @param chunkCol the chunk column
+     */
+    private void stepChunk(int chunkRow, int chunkCol) {
+        // gather the chunk with one row above and below, and the edge bits of the chunks to either side
+        for (int dr = -1; dr <= 1; dr++) {
+            long[] west = chunks.get(key(chunkRow + dr, chunkCol - 1));
+            long[] centre = chunks.get(key(chunkRow + dr, chunkCol));
+            long[] east = chunks.get(key(chunkRow + dr, chunkCol + 1));
+            int from = dr < 0 ? CHUNK_SIZE - 1 : 0;
+            int to = dr > 0 ? 1 : CHUNK_SIZE;
+            for (int r = from; r < to; r++) {
+                int i = (dr + 1) * CHUNK_SIZE + r - (CHUNK_SIZE - 1);
+                rows[i] = centre == null ? 0 : centre[r];
+                westBits[i] = west == null ? 0 : west[r] >>> 63;
+                eastBits[i] = east == null ? 0 : east[r] << 63;
+            }
+        }
+        long[] result = takeSpare();
+        long any = 0;
+        long base = key(chunkRow, chunkCol) * CHUNK_SIZE;
+        for (int r = 0; r < CHUNK_SIZE; r++) {
+            long a = rows[r];
+            long m = rows[r + 1];
+            long b = rows[r + 2];
+            result[r] = BitPackedEngine.nextWord((a << 1) | westBits[r], a, (a >>> 1) | eastBits[r],
+                    (m << 1) | westBits[r + 1], m, (m >>> 1) | eastBits[r + 1],
+                    (b << 1) | westBits[r + 2], b, (b >>> 1) | eastBits[r + 2], rule);
+            any |= result[r];
+            if (result[r] != m) {
+                hash ^= CycleDetector.hashWord(base + r, m) ^ CycleDetector.hashWord(base + r, result[r]);
+            }
+        }
+        if (any != 0) {
+            nextChunks.put(key(chunkRow, chunkCol), result);
+        } else {
+            recycle(result);
+        }
+    }
+
+    /**
+     * method to pack a chunk coordinate into a map key
+     * @param chunkRow the chunk row
+     * @param chunkCol the chunk column
+     * @return the key
+     */
+    private static long key(long chunkRow, long chunkCol) {
+        return (chunkRow << 32) | (chunkCol & 0xFFFFFFFFL);
+    }
+
+    /**
+     * method to check a chunk for live cells
+     * @param chunk the chunk
+     * @return true if every cell is dead
+     */
+    private static boolean isEmpty(long[] chunk) {
+        for (long row : chunk) {
+            if (row != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * method to get a cleared chunk, reusing a spare one if there is one
+     * @return the chunk
+     */
+    private long[] takeSpare() {
+        if (spareCount == 0) {
+            return new long[CHUNK_SIZE];
+        }
+        long[] chunk = spare[--spareCount];
+        spare[spareCount] = null;
+        Arrays.fill(chunk, 0L);
+        return chunk;
+    }
+
+    /**
+     * method to keep a chunk that is no longer used for later
+     * @param chunk the chunk
+     */
+    private void recycle(long[] chunk) {
+        if (spareCount == MAX_SPARE) {
+            return;
+        }
+        if (spareCount == spare.length) {
+            spare = Arrays.copyOf(spare, spare.length * 2);
+        }
+        spare[spareCount++] = chunk;
+    }
+
+    /**
+     * method to recycle every chunk of a map and clear it
+     * @param map the map to empty
+     */
+    private void recycleAll(LongKeyMap<long[]> map) {
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            long[] chunk = map.valueAt(slot);
+            if (chunk != null) {
+                recycle(chunk);
+            }
+        }
+        map.clear();
+    }
+}
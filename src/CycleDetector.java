@@ -0,0 +1,189 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Spots a board that has died out or settled into a still life or oscillator, from the hash of each
+ * generation. The engines keep a Zobrist-style hash of their cells up to date as they step: every (position,
+ * 64-cell word) pair has its own pseudo-random key, the hash is the XOR of the keys of the non-empty words, and
+ * a word that changes swaps its old key for its new one. That costs a couple of multiplies per changed word,
+ * however large the board, and an empty board always hashes to zero.
+ * <p>
+ * The detector remembers the hashes of a bounded number of recent generations. A hash seen before means the
+ * board is repeating with a period of the distance between the two; periods longer than the history are not
+ * found. Equal hashes from different boards are possible but about as likely as a 1 in 2^64 draw.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class CycleDetector {
+
+    // default number of generations remembered, and so the longest period found
+    public static final int DEFAULT_HISTORY = 256;
+
+    /**
+     * what the detector has found out about the board
+     */
+    public enum Outcome {
+        // nothing repeated yet
+        RUNNING,
+        // no live cells left
+        EXTINCT,
+        // the board stopped changing
+        STILL_LIFE,
+        // the board repeats with a period of two or more
+        OSCILLATOR
+    }
+
+    // the hashes of the most recent generations, in a ring, and the generation each was last seen at
+    private final long[] ring;
+    private final Map<Long, Long> seen = new HashMap<>();
+    // the generation observed last, or -1 before the first
+    private long lastGeneration = -1;
+    // what has been found, the period and the first generation of the cycle
+    private Outcome outcome = Outcome.RUNNING;
+    private long period;
+    private long cycleStart;
+
+    /**
+     * Constructor for a detector with the default history
+     */
+    public CycleDetector() {
+        this(DEFAULT_HISTORY);
+    }
+
+    /**
+     * Constructor for a detector remembering a given number of generations
+     * @param history the number of generations remembered, the longest period that can be found
+     */
+    public CycleDetector(int history) {
+        if (history < 1) {
+            throw new IllegalArgumentException("History must be at least one generation: " + history);
+        }
+        this.ring = new long[history];
+    }
+
+    /**
+     * method to observe the hash of a generation. Generations are expected one after another, anything else
+     * forgets the history and starts again from this generation
+     * @param generation the generation
+     * @param hash the engine's hash of it
+     * @return what has been found out, which stays the same once the board has settled
+     */
+    public Outcome observe(long generation, long hash) {
+        if (generation != lastGeneration + 1 || lastGeneration < 0) {
+            reset();
+        }
+        lastGeneration = generation;
+        if (outcome != Outcome.RUNNING) {
+            return outcome;
+        }
+        if (hash == 0) {
+            outcome = Outcome.EXTINCT;
+            period = 1;
+            cycleStart = generation;
+            return outcome;
+        }
+        Long previous = seen.get(hash);
+        if (previous != null) {
+            period = generation - previous;
+            cycleStart = previous;
+            outcome = period == 1 ? Outcome.STILL_LIFE : Outcome.OSCILLATOR;
+            return outcome;
+        }
+        // forget the generation that has dropped out of the window
+        int slot = (int) (generation % ring.length);
+        if (seen.size() >= ring.length) {
+            seen.remove(ring[slot], generation - ring.length);
+        }
+        ring[slot] = hash;
+        seen.put(hash, generation);
+        return outcome;
+    }
+
+    /**
+     * method to forget everything observed
+     */
+    public void reset() {
+        seen.clear();
+        lastGeneration = -1;
+        outcome = Outcome.RUNNING;
+        period = 0;
+        cycleStart = 0;
+    }
+
+    /**
+     * getter method for what has been found out
+     * @return the outcome
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * getter method for the period of the cycle, 1 for a still life or an extinct board
+     * @return the period, or 0 while the board is still running
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * getter method for the first generation of the cycle
+     * @return the generation, or 0 while the board is still running
+     */
+    public long getCycleStart() {
+        return cycleStart;
+    }
+
+    /**
+     * method to describe what has been found out, for status lines
+     * @return the description
+     */
+    public String describe() {
+        switch (outcome) {
+            case EXTINCT:
+                return "died out at generation " + cycleStart;
+            case STILL_LIFE:
+                return "still life from generation " + cycleStart;
+            case OSCILLATOR:
+                return "period " + period + " oscillator from generation " + cycleStart;
+            default:
+                return "still running";
+        }
+    }
+
+    /**
+     * method to work out how many more generations reach the same board as a target generation, once the board
+     * is cycling, so the generations in between can be skipped
+     * @param generation the generation the board is at
+     * @param target the generation wanted
+     * @return the generations to step, less than the period
+     */
+    public long remainingSteps(long generation, long target) {
+        if (outcome == Outcome.RUNNING || target <= generation) {
+            return Math.max(0, target - generation);
+        }
+        return (target - generation) % period;
+    }
+
+    /**
+     * method to find the key of a word of cells at a position, zero for an empty word so that the hash of an
+     * empty board is zero
+     * @param index the position of the word
+     * @param word the 64 cells
+     * @return the key
+     */
+    public static long hashWord(long index, long word) {
+        return word == 0 ? 0 : mix64(word ^ mix64(index + 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * method to scramble the bits of a long, the finalizer of SplitMix64
+     * @param z the value
+     * @return the scrambled value
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
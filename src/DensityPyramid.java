@@ -0,0 +1,306 @@
+import java.util.Arrays;
+
+/**
+ * A mipmap of how many cells are alive in each block of a board, for drawing it zoomed out. Level 0 counts the
+ * live cells of each 8x8 block, and each level above sums 2x2 blocks of the level below, up to a single block
+ * covering the whole board. A renderer showing many cells per pixel picks the level whose blocks are about a
+ * pixel across and shades each pixel by its block's density, so a frame costs the same however large the board.
+ * <p>
+ * Counts are updated as cells change: a changed block of level 0 passes the difference in its count up through
+ * every level above it, so an update costs the number of levels rather than a rebuild.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class DensityPyramid {
+
+    // side of a level 0 block in cells
+    public static final int BLOCK_SIZE = 8;
+
+    // size of the board in cells
+    private final int width;
+    private final int height;
+    // live cells in each block of level 0, which never holds more than 64
+    private final byte[] base;
+    // live cells in each block of levels 1 and up, level n at index n - 1
+    private final int[][] upper;
+    // dimensions of every level in blocks
+    private final int[] levelWidths;
+    private final int[] levelHeights;
+    // changes to a row of level 0 blocks waiting to be passed up, kept between updates
+    private final int[] pending;
+
+    /**
+     * Constructor for the pyramid of an empty board
+     * @param width the number of columns on the board
+     * @param height the number of rows on the board
+     */
+    public DensityPyramid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int levels = 1;
+        int w = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int h = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        while (w > 1 || h > 1) {
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+            levels++;
+        }
+        this.levelWidths = new int[levels];
+        this.levelHeights = new int[levels];
+        this.levelWidths[0] = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.levelHeights[0] = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if ((long) levelWidths[0] * levelHeights[0] > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board is too large for a density pyramid: " + width + "x" + height);
+        }
+        this.base = new byte[levelWidths[0] * levelHeights[0]];
+        this.pending = new int[levelWidths[0]];
+        this.upper = new int[levels - 1][];
+        for (int level = 1; level < levels; level++) {
+            levelWidths[level] = (levelWidths[level - 1] + 1) / 2;
+            levelHeights[level] = (levelHeights[level - 1] + 1) / 2;
+            upper[level - 1] = new int[levelWidths[level] * levelHeights[level]];
+        }
+    }
+
+    /**
+     * getter method for the number of levels, the top one being a single block
+     * @return the levels
+     */
+    public int getLevels() {
+        return levelWidths.length;
+    }
+
+    /**
+     * getter method for the side of a block of a level in cells
+     * @param level the level
+     * @return the block size
+     */
+    public static int blockSize(int level) {
+        return BLOCK_SIZE << level;
+    }
+
+    /**
+     * getter method for the number of blocks across a level
+     * @param level the level
+     * @return the width in blocks
+     */
+    public int getLevelWidth(int level) {
+        return levelWidths[level];
+    }
+
+    /**
+     * getter method for the number of blocks down a level
+     * @param level the level
+     * @return the height in blocks
+     */
+    public int getLevelHeight(int level) {
+        return levelHeights[level];
+    }
+
+    /**
+     * method to pick the level to draw from when each pixel covers a number of cells, the finest level whose
+     * blocks are at least a pixel wide. Every block then has a pixel centre inside it, so none is skipped and a
+     * lone live cell still shows
+     * @param cellsPerPixel the cells across each pixel
+     * @return the level
+     */
+    public int levelFor(double cellsPerPixel) {
+        int level = 0;
+        while (level + 1 < getLevels() && blockSize(level) < cellsPerPixel) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * getter method for the live cells in a block
+     * @param level the level
+     * @param blockRow the row of the block
+     * @param blockCol the column of the block
+     * @return the count
+     */
+    public int getCount(int level, int blockRow, int blockCol) {
+        int index = blockRow * levelWidths[level] + blockCol;
+        return level == 0 ? base[index] : upper[level - 1][index];
+    }
+
+    /**
+     * getter method for the fraction of a block's cells that are alive, counting only the part of the block
+     * that is on the board
+     * @param level the level
+     * @param blockRow the row of the block
+     * @param blockCol the column of the block
+     * @return the density, from 0 to 1
+     */
+    public double getDensity(int level, int blockRow, int blockCol) {
+        int size = blockSize(level);
+        long rows = Math.min(size, height - (long) blockRow * size);
+        long cols = Math.min(size, width - (long) blockCol * size);
+        return rows <= 0 || cols <= 0 ? 0 : getCount(level, blockRow, blockCol) / (double) (rows * cols);
+    }
+
+    /**
+     * method to change the count of a level 0 block, passing the difference up through the levels above
+     * @param blockRow the row of the block
+     * @param blockCol the column of the block
+     * @param delta the change in live cells
+     */
+    public void add(int blockRow, int blockCol, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        base[blockRow * levelWidths[0] + blockCol] += delta;
+        for (int level = 1; level < getLevels(); level++) {
+            upper[level - 1][(blockRow >> level) * levelWidths[level] + (blockCol >> level)] += delta;
+        }
+    }
+
+    /**
+     * method to count a rectangle of packed cells again, along with every block it touches. Each byte of a
+     * packed row is one row of a block, so a block row is counted with a single bit count
+     * @param cells the cells of the board, packed the same as a BoardSnapshot's rows
+     * @param wordsPerRow the words in each packed row
+     * @param top the top row of the rectangle
+     * @param left the left column of the rectangle
+     * @param rows the number of rows in the rectangle
+     * @param cols the number of columns in the rectangle
+     */
+    public void recount(long[] cells, int wordsPerRow, int top, int left, int rows, int cols) {
+        int firstRow = Math.max(0, top) / BLOCK_SIZE;
+        int lastRow = Math.min(height - 1, top + rows - 1) / BLOCK_SIZE;
+        int firstCol = Math.max(0, left) / BLOCK_SIZE;
+        int lastCol = Math.min(width - 1, left + cols - 1) / BLOCK_SIZE;
+        for (int blockRow = firstRow; blockRow <= lastRow; blockRow++) {
+            int toRow = Math.min(height, (blockRow + 1) * BLOCK_SIZE);
+            for (int blockCol = firstCol; blockCol <= lastCol; blockCol++) {
+                int shift = (blockCol & 7) << 3;
+                int count = 0;
+                for (int row = blockRow * BLOCK_SIZE; row < toRow; row++) {
+                    count += Long.bitCount((cells[row * wordsPerRow + (blockCol >>> 3)] >>> shift) & 0xFF);
+                }
+                add(blockRow, blockCol, count - base[blockRow * levelWidths[0] + blockCol]);
+            }
+        }
+    }
+
+    /**
+     * method to count a whole snapshot from scratch. Each byte of a packed row is one row of a block, so a block
+     * row is counted with a single bit count
+     * @param snapshot the snapshot, the same size as the pyramid's board
+     */
+    public void load(BoardSnapshot snapshot) {
+        Arrays.fill(base, (byte) 0);
+        for (int[] level : upper) {
+            Arrays.fill(level, 0);
+        }
+        for (int row = 0; row < Math.min(height, snapshot.getHeight()); row++) {
+            int blockRow = row / BLOCK_SIZE;
+            for (int w = 0; w < snapshot.getWordsPerRow(); w++) {
+                long word = snapshot.word(row, w);
+                while (word != 0) {
+                    int blockCol = (w << 3) + (Long.numberOfTrailingZeros(word) >>> 3);
+                    int shift = (blockCol & 7) << 3;
+                    if (blockCol >= levelWidths[0]) {
+                        break;
+                    }
+                    base[blockRow * levelWidths[0] + blockCol] += Long.bitCount((word >>> shift) & 0xFF);
+                    word &= ~(0xFFL << shift);
+                }
+            }
+        }
+        // build each level from the one below rather than passing every block up separately
+        for (int level = 1; level < getLevels(); level++) {
+            for (int blockRow = 0; blockRow < levelHeights[level - 1]; blockRow++) {
+                for (int blockCol = 0; blockCol < levelWidths[level - 1]; blockCol++) {
+                    upper[level - 1][(blockRow >> 1) * levelWidths[level] + (blockCol >> 1)]
+                            += getCount(level - 1, blockRow, blockCol);
+                }
+            }
+        }
+    }
+
+    /**
+     * method to update the pyramid from one snapshot of the board to the next, looking only at the bytes of the
+     * packed rows that differ. The changes of the eight rows of a row of blocks are added up before being passed
+     * up the levels, each level folding them into half as many blocks. The same pass finds the rectangle the
+     * changes are in, so a renderer doesn't have to compare the snapshots again to know what to repaint
+     * @param previous the snapshot the pyramid was counted from
+     * @param snapshot the new snapshot
+     * @return the rows and level 0 block columns, in cells, that changed, or null if nothing did
+     */
+    public BoardStats.Bounds update(BoardSnapshot previous, BoardSnapshot snapshot) {
+        int top = -1;
+        int bottom = -1;
+        int left = Integer.MAX_VALUE;
+        int right = -1;
+        boolean rowChanged = false;
+        int rows = Math.min(height, snapshot.getHeight());
+        for (int row = 0; row < rows; row++) {
+            for (int w = 0; w < snapshot.getWordsPerRow(); w++) {
+                long was = previous.word(row, w);
+                long now = snapshot.word(row, w);
+                long diff = was ^ now;
+                if (diff == 0) {
+                    continue;
+                }
+                if (top < 0) {
+                    top = row;
+                }
+                bottom = row;
+                left = Math.min(left, (w << 6) + (Long.numberOfTrailingZeros(diff) & ~7));
+                right = Math.max(right, Math.min(width - 1, (w << 6) + (63 - Long.numberOfLeadingZeros(diff) | 7)));
+                while (diff != 0) {
+                    int blockCol = (w << 3) + (Long.numberOfTrailingZeros(diff) >>> 3);
+                    int shift = (blockCol & 7) << 3;
+                    if (blockCol >= levelWidths[0]) {
+                        break;
+                    }
+                    pending[blockCol] += Long.bitCount((now >>> shift) & 0xFF) - Long.bitCount((was >>> shift) & 0xFF);
+                    rowChanged = true;
+                    diff &= ~(0xFFL << shift);
+                }
+            }
+            if (rowChanged && (row % BLOCK_SIZE == BLOCK_SIZE - 1 || row == rows - 1)) {
+                addRow(row / BLOCK_SIZE, pending);
+                rowChanged = false;
+            }
+        }
+        return top < 0 ? null : new BoardStats.Bounds(top, left, bottom, right);
+    }
+
+    /**
+     * method to add the changes to a row of level 0 blocks and pass them up, clearing them as it goes
+     * @param blockRow the row of blocks
+     * @param pending the change to each block of the row, reused as scratch space for the levels above
+     */
+    private void addRow(int blockRow, int[] pending) {
+        int index = blockRow * levelWidths[0];
+        for (int blockCol = 0; blockCol < levelWidths[0]; blockCol++) {
+            base[index + blockCol] += pending[blockCol];
+        }
+        int count = levelWidths[0];
+        for (int level = 1; level < getLevels(); level++) {
+            // fold pairs of blocks into the block above them
+            int folded = levelWidths[level];
+            for (int blockCol = 0; blockCol < folded; blockCol++) {
+                int sum = pending[blockCol << 1];
+                if ((blockCol << 1) + 1 < count) {
+                    sum += pending[(blockCol << 1) + 1];
+                }
+                pending[blockCol] = sum;
+            }
+            for (int blockCol = folded; blockCol < count; blockCol++) {
+                pending[blockCol] = 0;
+            }
+            index = (blockRow >> level) * folded;
+            for (int blockCol = 0; blockCol < folded; blockCol++) {
+                upper[level - 1][index + blockCol] += pending[blockCol];
+            }
+            count = folded;
+        }
+        pending[0] = 0;
+        for (int blockCol = 1; blockCol < count; blockCol++) {
+            pending[blockCol] = 0;
+        }
+    }
+}
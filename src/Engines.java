@@ -0,0 +1,81 @@
+import java.nio.file.Path;
+
+/**
+ * Factory for the generation engines, so the engine can be picked by name from the command line. The off-heap
+ * engine can also be given a file to map its buffers from as "offheap:path", for boards larger than memory
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public final class Engines {
+
+    // names accepted by create, in the order they are listed in usage messages
+    public static final String[] NAMES = {"packed", "sparse", "hashlife", "unbounded", "offheap", "scalar"};
+    // prefix of the off-heap engine's name when it is followed by the file to map
+    public static final String MAPPED_PREFIX = "offheap:";
+
+    private Engines() {
+    }
+
+    /**
+     * method to create an engine by name
+     * @param name one of NAMES
+     * @param width the number of columns on the board, or in the window for the unbounded engines
+     * @param height the number of rows on the board, or in the window for the unbounded engines
+     * @param threads the number of threads to step with, engines that can't split the work ignore it
+     * @return the engine
+     */
+    public static LifeEngine create(String name, int width, int height, int threads) {
+        return create(name, width, height, threads, Topology.DEAD);
+    }
+
+    /**
+     * method to create an engine by name with an edge behavior
+     * @param name one of NAMES
+     * @param width the number of columns on the board, or in the window for the unbounded engines
+     * @param height the number of rows on the board, or in the window for the unbounded engines
+     * @param threads the number of threads to step with, engines that can't split the work ignore it
+     * @param topology what lies beyond the edges of the board, the unbounded engines only support DEAD
+     * @return the engine
+     */
+    public static LifeEngine create(String name, int width, int height, int threads, Topology topology) {
+        return create(name, width, height, threads, topology, Rule.CONWAY);
+    }
+
+    /**
+     * method to create an engine by name with an edge behavior and rule
+     * @param name one of NAMES, or MAPPED_PREFIX followed by a file for an off-heap engine mapped from it
+     * @param width the number of columns on the board, or in the window for the unbounded engines
+     * @param height the number of rows on the board, or in the window for the unbounded engines
+     * @param threads the number of threads to step with, engines that can't split the work ignore it
+     * @param topology what lies beyond the edges of the board, the unbounded engines only support DEAD
+     * @param rule the rule, only the packed engine runs rules that give birth on zero neighbors
+     * @return the engine
+     */
+    public static LifeEngine create(String name, int width, int height, int threads, Topology topology, Rule rule) {
+        if (topology != Topology.DEAD && (name.equals("hashlife") || name.equals("unbounded"))) {
+            throw new IllegalArgumentException("The " + name + " engine has no edges, so it can't use the "
+                    + topology.name().toLowerCase() + " topology");
+        }
+        if (name.startsWith(MAPPED_PREFIX) && name.length() > MAPPED_PREFIX.length()) {
+            return new OffHeapEngine(width, height, topology, rule, Path.of(name.substring(MAPPED_PREFIX.length())));
+        }
+        switch (name) {
+            case "packed":
+                return threads > 1 ? new ParallelEngine(width, height, threads, topology, rule)
+                        : new BitPackedEngine(width, height, topology, rule);
+            case "sparse":
+                return new SparseTileEngine(width, height, topology, rule);
+            case "hashlife":
+                return new HashLifeEngine(width, height, HashLifeEngine.DEFAULT_MAX_NODES, rule);
+            case "unbounded":
+                return new ChunkedPlaneEngine(width, height, rule);
+            case "offheap":
+                return new OffHeapEngine(width, height, topology, rule);
+            case "scalar":
+                return new ScalarEngine(width, height, topology, rule);
+            default:
+                throw new IllegalArgumentException("Unknown engine \"" + name + "\", expected one of "
+                        + String.join(", ", NAMES) + " or " + MAPPED_PREFIX + "file");
+        }
+    }
+}
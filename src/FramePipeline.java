@@ -0,0 +1,67 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A single-slot, lock-free hand off of snapshots from the simulation thread to the renderer. The simulation
+ * publishes every generation it computes and the renderer takes whatever is newest when it draws a frame,
+ * so neither side ever waits on the other. Generations that are replaced before the renderer gets to them are
+ * counted as dropped.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class FramePipeline {
+
+    // the newest snapshot the renderer hasn't taken yet
+    private final AtomicReference<BoardSnapshot> slot = new AtomicReference<>();
+    // counters for generations published, frames taken and generations replaced before being drawn
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong taken = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * method for the simulation to publish a new generation, replacing one that hasn't been drawn yet
+     * @param snapshot the snapshot to publish
+     */
+    public void publish(BoardSnapshot snapshot) {
+        published.incrementAndGet();
+        if (slot.getAndSet(snapshot) != null) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * method for the renderer to take the newest generation
+     * @return the snapshot, or null if nothing new was published since the last take
+     */
+    public BoardSnapshot take() {
+        BoardSnapshot snapshot = slot.getAndSet(null);
+        if (snapshot != null) {
+            taken.incrementAndGet();
+        }
+        return snapshot;
+    }
+
+    /**
+     * getter method for the number of generations published
+     * @return the count
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * getter method for the number of frames taken by the renderer
+     * @return the count
+     */
+    public long getTaken() {
+        return taken.get();
+    }
+
+    /**
+     * getter method for the number of generations that were never drawn
+     * @return the count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a simulation thread at a target number of generations per second. Each generation is given a deadline
+ * one period after the last one rather than after the last one finished, so the time spent stepping and drawing
+ * doesn't add up into drift. A thread that falls more than a few periods behind starts counting again from now
+ * instead of rushing through the generations it missed. A rate of zero or less runs as fast as possible.
+ * <p>
+ * The rate can be changed from any thread while the simulation runs. A generation already being waited for is
+ * rescheduled one new period after the previous deadline, so slowing down or speeding up takes effect at once.
+ * The achieved rate is worked out over roughly the last second.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class GenerationScheduler {
+
+    // rate meaning as fast as possible
+    public static final double UNLIMITED = 0;
+    // periods a thread may fall behind before its schedule is restarted from now
+    private static final int MAX_LAG_PERIODS = 4;
+    // time the achieved rate is measured over
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // waits shorter than this are spun rather than parked, since parking can overshoot by about this much
+    private static final long SPIN_NANOS = 100_000;
+
+    // nanoseconds between generations, 0 for as fast as possible, pushed from the UI thread
+    private volatile long periodNanos;
+    // deadline of the next generation, only touched by the simulation thread
+    private long deadline;
+    // the simulation thread while it waits, woken when the rate changes
+    private volatile Thread waiter;
+    private boolean started;
+    // generations and time at the start of the current measuring window, and the rate over the last full one
+    private long windowTicks;
+    private long windowStart;
+    private volatile double achievedRate;
+    // generations whose deadline had already passed by the time they were waited for
+    private volatile long lateTicks;
+
+    /**
+     * Constructor for a scheduler running at a given rate
+     * @param generationsPerSecond the target rate, zero or less for as fast as possible
+     */
+    public GenerationScheduler(double generationsPerSecond) {
+        setRate(generationsPerSecond);
+    }
+
+    /**
+     * method to change the target rate, safe to call from any thread
+     * @param generationsPerSecond the target rate, zero or less for as fast as possible
+     */
+    public void setRate(double generationsPerSecond) {
+        if (Double.isNaN(generationsPerSecond) || Double.isInfinite(generationsPerSecond)) {
+            throw new IllegalArgumentException("Not a rate: " + generationsPerSecond);
+        }
+        periodNanos = generationsPerSecond <= 0 ? 0 : Math.max(1, (long) (1e9 / generationsPerSecond));
+        Thread waiting = waiter;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+
+    /**
+     * getter method for the target rate
+     * @return generations per second, UNLIMITED for as fast as possible
+     */
+    public double getTargetRate() {
+        long period = periodNanos;
+        return period == 0 ? UNLIMITED : 1e9 / period;
+    }
+
+    /**
+     * getter method for whether the scheduler runs as fast as possible
+     * @return true if there is no target rate
+     */
+    public boolean isUnlimited() {
+        return periodNanos == 0;
+    }
+
+    /**
+     * method to start a new schedule, called by the simulation thread before its first generation
+     */
+    public void start() {
+        long now = System.nanoTime();
+        deadline = now;
+        windowStart = now;
+        windowTicks = 0;
+        achievedRate = 0;
+        lateTicks = 0;
+        started = true;
+    }
+
+    /**
+     * method for the simulation thread to wait until the next generation is due
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitNext() throws InterruptedException {
+        if (!started) {
+            start();
+        }
+        long now = System.nanoTime();
+        countTick(now);
+        long period = periodNanos;
+        if (period == 0) {
+            deadline = now;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            return;
+        }
+        deadline += period;
+        if (now - deadline > MAX_LAG_PERIODS * period) {
+            // too far behind to catch up without a burst of generations, so start counting again from now
+            deadline = now;
+        }
+        if (now - deadline > 0) {
+            lateTicks++;
+        }
+        long previous = deadline - period;
+        long remaining;
+        waiter = Thread.currentThread();
+        try {
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                if (remaining > SPIN_NANOS) {
+                    LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+                } else {
+                    Thread.onSpinWait();
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long current = periodNanos;
+                if (current != period) {
+                    // the rate changed while waiting, so this generation is due one new period after the last one
+                    period = current;
+                    if (period == 0) {
+                        deadline = System.nanoTime();
+                        break;
+                    }
+                    deadline = previous + period;
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * method to count a generation towards the achieved rate
+     * @param now the time
+     */
+    private void countTick(long now) {
+        windowTicks++;
+        long elapsed = now - windowStart;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            achievedRate = windowTicks * 1e9 / elapsed;
+            windowTicks = 0;
+            windowStart = now;
+        }
+    }
+
+    /**
+     * getter method for the rate achieved over the last second or so
+     * @return generations per second, 0 until a second has gone by
+     */
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+
+    /**
+     * getter method for the number of generations that were already late when they were waited for
+     * @return the count since the schedule started
+     */
+    public long getLateTicks() {
+        return lateTicks;
+    }
+
+    /**
+     * method to describe the achieved and target rates, for status lines
+     * @return the description
+     */
+    public String describeRate() {
+        if (isUnlimited()) {
+            return String.format("%.1f generations/s (as fast as possible)", achievedRate);
+        }
+        return String.format("%.1f of %.1f generations/s", achievedRate, getTargetRate());
+    }
+}
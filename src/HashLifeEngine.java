@@ -0,0 +1,709 @@
+import java.util.Arrays;
+
+/**
+ * A Hashlife engine: the plane is a quadtree of canonical nodes kept in a hash-consing table, and every node
+ * remembers its own future, so repeated structure in space and time is only ever computed once. This lets a
+ * single call advance the pattern by 2^k generations. The plane is unbounded; the width and height given to
+ * the constructor only describe the window that load, toArray, get and set work on.
+ * The node table is capped, and whenever it grows past the cap, even in the middle of an advance, nodes that are
+ * no longer reachable from the current pattern or the advance in progress are dropped along with every memoized
+ * result.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class HashLifeEngine implements LifeEngine {
+
+    // default cap on the number of canonical nodes kept between advances
+    public static final int DEFAULT_MAX_NODES = 1 << 22;
+
+    // size of the window onto the plane
+    private final int width;
+    private final int height;
+    // node cap before unreachable nodes are collected
+    private final int maxNodes;
+    // table size that triggers the next collection, raised above the cap while more nodes than that are live
+    private int collectAt;
+    // nodes an advance in progress still needs, which a collection in the middle of it must keep
+    private Node[] inProgress = new Node[256];
+    private int inProgressCount;
+    // collections only happen while advancing, where every node being built is kept track of
+    private boolean advancing;
+    // the hash-consing table, chained through Node.chain
+    private Node[] table = new Node[1 << 16];
+    private int size;
+    // the two leaves and a cache of empty nodes for every level
+    private final Node dead = new Node(0, 0);
+    private final Node alive = new Node(1, 1);
+    private Node[] empty = new Node[64];
+    // the current pattern and the plane coordinates of its top left corner
+    private Node root;
+    private long top;
+    private long left;
+    // the window is marked wholesale whenever it may have changed
+    private final ChangeSet changes;
+    // the birth and survival counts the leaves are stepped with
+    private final Rule rule;
+    // number of generations advanced since the last load
+    private long generation;
+
+    /**
+     * Constructor for a Hashlife engine with the default node cap
+     * @param width the number of columns in the window
+     * @param height the number of rows in the window
+     */
+    public HashLifeEngine(int width, int height) {
+        this(width, height, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructor for a Hashlife engine with a given node cap
+     * @param width the number of columns in the window
+     * @param height the number of rows in the window
+     * @param maxNodes the number of nodes to allow before collecting unreachable ones
+     */
+    public HashLifeEngine(int width, int height, int maxNodes) {
+        this(width, height, maxNodes, Rule.CONWAY);
+    }
+
+    /**
+     * Constructor for a Hashlife engine with a given node cap and rule
+     * @param width the number of columns in the window
+     * @param height the number of rows in the window
+     * @param maxNodes the number of nodes to allow before collecting unreachable ones
+     * @param rule the rule generations are computed with, which can't give birth on zero neighbors
+     */
+    public HashLifeEngine(int width, int height, int maxNodes, Rule rule) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Board dimensions must be positive: " + width + "x" + height);
+        }
+        if (rule.birthOnZero()) {
+            // empty nodes would no longer stay empty, which the whole quadtree relies on
+            throw new IllegalArgumentException("The hashlife engine can't run B0 rules: " + rule);
+        }
+        this.rule = rule;
+        this.width = width;
+        this.height = height;
+        this.changes = new ChangeSet(width, height);
+        this.maxNodes = maxNodes;
+        this.collectAt = maxNodes;
+        empty[0] = dead;
+        root = empty(3);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * getter method for the number of live cells anywhere on the plane
+     * @return the population
+     */
+    public long getPopulation() {
+        return root.population;
+    }
+
+    /**
+     * getter method for the number of canonical nodes currently in the table
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return size;
+    }
+
+    @Override
+    public boolean get(int row, int col) {
+        long r = row - top;
+        long c = col - left;
+        long side = 1L << root.level;
+        if (r < 0 || r >= side || c < 0 || c >= side) {
+            return false;
+        }
+        Node node = root;
+        while (node.level > 0) {
+            if (node.population == 0) {
+                return false;
+            }
+            long half = 1L << (node.level - 1);
+            if (r < half) {
+                node = c < half ? node.nw : node.ne;
+            } else {
+                node = c < half ? node.sw : node.se;
+            }
+            r &= half - 1;
+            c &= half - 1;
+        }
+        return node == alive;
+    }
+
+    @Override
+    public void set(int row, int col, boolean alive) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return;
+        }
+        // grow the root until it covers the cell
+        while (row < top || col < left || row >= top + (1L << root.level) || col >= left + (1L << root.level)) {
+            expand();
+        }
+        root = setCell(root, row - top, col - left, alive);
+        changes.markCell(row, col);
+    }
+
+    @Override
+    public void load(boolean[][] state) {
+        // drop everything from the previous pattern so the table starts from this one
+        table = new Node[1 << 16];
+        size = 0;
+        empty = new Node[64];
+        empty[0] = dead;
+        int level = 3;
+        while ((1L << level) < Math.max(width, height)) {
+            level++;
+        }
+        root = build(state, 0, 0, level);
+        top = 0;
+        left = 0;
+        generation = 0;
+        changes.markAll();
+    }
+
+    @Override
+    public void load(BoardSnapshot snapshot) {
+        table = new Node[1 << 16];
+        size = 0;
+        empty = new Node[64];
+        empty[0] = dead;
+        int level = 3;
+        while ((1L << level) < Math.max(width, height)) {
+            level++;
+        }
+        root = build(snapshot, 0, 0, level);
+        top = 0;
+        left = 0;
+        generation = snapshot.getGeneration();
+        changes.markAll();
+    }
+
+    @Override
+    public boolean[][] toArray() {
+        boolean[][] state = new boolean[height][width];
+        collect(root, top, left, state);
+        return state;
+    }
+
+    @Override
+    public void step() {
+        advance(0);
+    }
+
+    /**
+     * method to advance the pattern by 2^k generations in one call
+     * @param k the base two logarithm of the number of generations
+     */
+    public void advance(int k) {
+        if (k < 0 || k > 60) {
+            throw new IllegalArgumentException("Step exponent must be between 0 and 60: " + k);
+        }
+        inProgressCount = 0;
+        advancing = true;
+        // the result of a node is its centre half, so pad until the pattern sits well inside the centre
+        while (root.level < k + 2 || !isPadded(root)) {
+            expand();
+        }
+        expand();
+        long quarter = 1L << (root.level - 2);
+        root = successor(root, k);
+        advancing = false;
+        inProgressCount = 0;
+        top += quarter;
+        left += quarter;
+        generation += 1L << k;
+        changes.markAll();
+    }
+
+    /**
+     * method to advance the pattern by any number of generations, one power of two at a time. Steps larger than
+     * advance allows are split into repeated steps of 2^60
+     * @param generations the number of generations to advance
+     */
+    public void advanceBy(long generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("Generations must not be negative: " + generations);
+        }
+        for (long i = generations >>> 60; i > 0; i--) {
+            advance(60);
+        }
+        for (int k = 59; k >= 0; k--) {
+            if ((generations & (1L << k)) != 0) {
+                advance(k);
+            }
+        }
+    }
+
+    /**
+     * method to find or create the canonical node with the given children
+     * @param nw the north west quadrant
+     * @param ne the north east quadrant
+     * @param sw the south west quadrant
+     * @param se the south east quadrant
+     * @return the canonical node
+     */
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        if (advancing && size >= collectAt) {
+            collectGarbage(nw, ne, sw, se);
+        }
+        int hash = hash(nw, ne, sw, se);
+        int index = index(hash, table.length);
+        for (Node node = table[index]; node != null; node = node.chain) {
+            if (node.hash == hash && node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+                return node;
+            }
+        }
+        Node node = new Node(nw, ne, sw, se, hash);
+        node.chain = table[index];
+        table[index] = node;
+        if (++size > table.length - (table.length >>> 2)) {
+            resize(table.length << 1);
+        }
+        return node;
+    }
+
+    /**
+     * method to combine the hashes of four children
+     * @return the hash of the parent
+     */
+    private static int hash(Node nw, Node ne, Node sw, Node se) {
+        int hash = nw.hash;
+        hash = hash * 1000003 + ne.hash;
+        hash = hash * 1000003 + sw.hash;
+        hash = hash * 1000003 + se.hash;
+        return hash;
+    }
+
+    /**
+     * method to spread a hash over the buckets of the table
+     * @return the bucket index
+     */
+    private static int index(int hash, int length) {
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+
+    /**
+     * method to rehash every node into a table of a new size
+     * @param capacity the new number of buckets, a power of two
+     */
+    private void resize(int capacity) {
+        Node[] old = table;
+        table = new Node[capacity];
+        for (Node bucket : old) {
+            Node node = bucket;
+            while (node != null) {
+                Node chain = node.chain;
+                int index = index(node.hash, capacity);
+                node.chain = table[index];
+                table[index] = node;
+                node = chain;
+            }
+        }
+    }
+
+    /**
+     * method to remember a node an advance in progress still needs until the advance finishes, so a collection
+     * part way through keeps it in the table
+     * @param node the node
+     * @return the node
+     */
+    private Node keep(Node node) {
+        if (inProgressCount == inProgress.length) {
+            inProgress = Arrays.copyOf(inProgress, inProgressCount << 1);
+        }
+        inProgress[inProgressCount++] = node;
+        return node;
+    }
+
+    /**
+     * method to drop every node that can't be reached from the current pattern, the advance in progress or the
+     * node being joined, and forget all memoized results. If most of the table is still live afterwards the next
+     * collection waits until it has doubled, rather than collecting again on every join
+     * @param children the children of the node being joined
+     */
+    private void collectGarbage(Node... children) {
+        mark(root);
+        for (Node node : empty) {
+            if (node != null) {
+                mark(node);
+            }
+        }
+        for (int i = 0; i < inProgressCount; i++) {
+            mark(inProgress[i]);
+        }
+        for (Node node : children) {
+            mark(node);
+        }
+        Node[] old = table;
+        int capacity = 1 << 16;
+        while (capacity - (capacity >>> 2) < size) {
+            capacity <<= 1;
+        }
+        table = new Node[capacity];
+        size = 0;
+        for (Node bucket : old) {
+            Node node = bucket;
+            while (node != null) {
+                Node chain = node.chain;
+                node.result = null;
+                if (node.marked) {
+                    node.marked = false;
+                    int index = index(node.hash, capacity);
+                    node.chain = table[index];
+                    table[index] = node;
+                    size++;
+                }
+                node = chain;
+            }
+        }
+        collectAt = Math.max(maxNodes, size << 1);
+    }
+
+    /**
+     * method to mark a node and everything below it as reachable
+     * @param node the node to mark
+     */
+    private void mark(Node node) {
+        if (node.level == 0 || node.marked) {
+            return;
+        }
+        node.marked = true;
+        mark(node.nw);
+        mark(node.ne);
+        mark(node.sw);
+        mark(node.se);
+    }
+
+    /**
+     * method to get the canonical empty node of a level
+     * @param level the level of the node
+     * @return the empty node
+     */
+    private Node empty(int level) {
+        if (empty[level] == null) {
+            Node child = empty(level - 1);
+            empty[level] = join(child, child, child, child);
+        }
+        return empty[level];
+    }
+
+    /**
+     * method to wrap the root in a node one level up with the old root in the centre
+     */
+    private void expand() {
+        Node border = empty(root.level - 1);
+        long quarter = 1L << (root.level - 1);
+        int kept = inProgressCount;
+        Node nw = keep(join(border, border, border, root.nw));
+        Node ne = keep(join(border, border, root.ne, border));
+        Node sw = keep(join(border, root.sw, border, border));
+        root = join(nw, ne, sw, join(root.se, border, border, border));
+        inProgressCount = kept;
+        top -= quarter;
+        left -= quarter;
+    }
+
+    /**
+     * method to check that every live cell of a node is in its innermost sixteenth
+     * @param node the node to check
+     * @return true if the pattern is padded by empty space
+     */
+    private static boolean isPadded(Node node) {
+        return node.nw.population == node.nw.se.se.population
+                && node.ne.population == node.ne.sw.sw.population
+                && node.sw.population == node.sw.ne.ne.population
+                && node.se.population == node.se.nw.nw.population;
+    }
+
+    /**
+     * method to compute the centre half of a node 2^j generations on, memoized on the node
+     * @param node a node of level 2 or more
+     * @param j the base two logarithm of the number of generations, at most the level minus 2
+     * @return the centre of the node after 2^j generations, one level down
+     */
+    private Node successor(Node node, int j) {
+        if (node.population == 0) {
+            return empty(node.level - 1);
+        }
+        if (node.result != null && node.resultStep == j) {
+            return node.result;
+        }
+        Node result;
+        if (node.level == 2) {
+            result = baseCase(node);
+        } else {
+            // everything built on the way to the result is kept until it is joined, in case the table is collected
+            int kept = inProgressCount;
+            keep(node);
+            // the nine overlapping sub squares of the node, each one level down
+            Node n00 = node.nw;
+            Node n01 = keep(join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw));
+            Node n02 = node.ne;
+            Node n10 = keep(join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne));
+            Node n11 = keep(join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw));
+            Node n12 = keep(join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne));
+            Node n20 = node.sw;
+            Node n21 = keep(join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw));
+            Node n22 = node.se;
+            Node c00;
+            Node c01;
+            Node c02;
+            Node c10;
+            Node c11;
+            Node c12;
+            Node c20;
+            Node c21;
+            Node c22;
+            if (j == node.level - 2) {
+                // full speed: advance the nine squares, then advance the four squares they form
+                c00 = keep(successor(n00, j - 1));
+                c01 = keep(successor(n01, j - 1));
+                c02 = keep(successor(n02, j - 1));
+                c10 = keep(successor(n10, j - 1));
+                c11 = keep(successor(n11, j - 1));
+                c12 = keep(successor(n12, j - 1));
+                c20 = keep(successor(n20, j - 1));
+                c21 = keep(successor(n21, j - 1));
+                c22 = keep(successor(n22, j - 1));
+            } else {
+                // slower steps: just take the centres of the nine squares and advance the four squares once
+                c00 = keep(centre(n00));
+                c01 = keep(centre(n01));
+                c02 = keep(centre(n02));
+                c10 = keep(centre(n10));
+                c11 = keep(centre(n11));
+                c12 = keep(centre(n12));
+                c20 = keep(centre(n20));
+                c21 = keep(centre(n21));
+                c22 = keep(centre(n22));
+            }
+            int next = j == node.level - 2 ? j - 1 : j;
+            Node nw = keep(successor(join(c00, c01, c10, c11), next));
+            Node ne = keep(successor(join(c01, c02, c11, c12), next));
+            Node sw = keep(successor(join(c10, c11, c20, c21), next));
+            result = join(nw, ne, sw, successor(join(c11, c12, c21, c22), next));
+            inProgressCount = kept;
+        }
+        node.result = result;
+        node.resultStep = j;
+        return result;
+    }
+
+    /**
+     * method to take the centre half of a node without advancing it
+     * @param node a node of level 2 or more
+     * @return the centre, one level down
+     */
+    private Node centre(Node node) {
+        return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+    }
+
+    /**
+     * method to advance the centre 2x2 of a 4x4 node by one generation
+     * @param node a level 2 node
+     * @return the centre after one generation
+     */
+    private Node baseCase(Node node) {
+        // the 16 cells of the node, bit (row * 4 + col)
+        int bits = 0;
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                Node quad = row < 2 ? (col < 2 ? node.nw : node.ne) : (col < 2 ? node.sw : node.se);
+                Node leaf = (row & 1) == 0 ? ((col & 1) == 0 ? quad.nw : quad.ne) : ((col & 1) == 0 ? quad.sw : quad.se);
+                if (leaf == alive) {
+                    bits |= 1 << (row * 4 + col);
+                }
+            }
+        }
+        return join(nextCell(bits, 1, 1), nextCell(bits, 1, 2), nextCell(bits, 2, 1), nextCell(bits, 2, 2));
+    }
+
+    /**
+     * method to apply the rule to one cell of a 4x4 block
+     * @param bits the cells of the block
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the leaf for the cell in the next generation
+     */
+    private Node nextCell(int bits, int row, int col) {
+        int numNeighbors = 0;
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if ((r != row || c != col) && (bits & (1 << (r * 4 + c))) != 0) {
+                    numNeighbors++;
+                }
+            }
+        }
+        boolean cellState = (bits & (1 << (row * 4 + col))) != 0;
+        return rule.next(cellState, numNeighbors) ? alive : dead;
+    }
+
+    /**
+     * method to build a node from a region of a 2D array, cells outside the array or window are dead
+     * @param state the cells to read
+     * @param row the top row of the region
+     * @param col the left column of the region
+     * @param level the level of the node to build
+     * @return the canonical node
+     */
+    private Node build(boolean[][] state, long row, long col, int level) {
+        if (row >= Math.min(height, state.length) || col >= width) {
+            return empty(level);
+        }
+        if (level == 0) {
+            return col < state[(int) row].length && state[(int) row][(int) col] ? alive : dead;
+        }
+        long half = 1L << (level - 1);
+        return join(build(state, row, col, level - 1), build(state, row, col + half, level - 1),
+                build(state, row + half, col, level - 1), build(state, row + half, col + half, level - 1));
+    }
+
+    /**
+     * method to build a node from a region of a snapshot, cells outside the snapshot or window are dead. Once a
+     * node is no wider than a word its columns fall in one word of each row, so an empty node is found from the
+     * words without visiting its cells, and the cost follows the live parts of the snapshot
+     * @param snapshot the cells to read
+     * @param row the top row of the region
+     * @param col the left column of the region
+     * @param level the level of the node to build
+     * @return the canonical node
+     */
+    private Node build(BoardSnapshot snapshot, long row, long col, int level) {
+        int rows = Math.min(height, snapshot.getHeight());
+        if (row >= rows || col >= Math.min(width, snapshot.getWidth())) {
+            return empty(level);
+        }
+        if (level == 0) {
+            return snapshot.get((int) row, (int) col) ? alive : dead;
+        }
+        long side = 1L << level;
+        if (side <= Long.SIZE) {
+            long bits = (side == Long.SIZE ? -1L : (1L << side) - 1) << (col & 63);
+            boolean live = false;
+            for (long r = row; r < Math.min(rows, row + side) && !live; r++) {
+                live = (snapshot.word((int) r, (int) (col >>> 6)) & bits) != 0;
+            }
+            if (!live) {
+                return empty(level);
+            }
+        }
+        long half = side >>> 1;
+        return join(build(snapshot, row, col, level - 1), build(snapshot, row, col + half, level - 1),
+                build(snapshot, row + half, col, level - 1), build(snapshot, row + half, col + half, level - 1));
+    }
+
+    /**
+     * method to copy the live cells of a node that fall inside the window into a 2D array
+     * @param node the node to copy
+     * @param row the plane row of the top of the node
+     * @param col the plane column of the left of the node
+     * @param state the array to fill
+     */
+    private void collect(Node node, long row, long col, boolean[][] state) {
+        long side = 1L << node.level;
+        if (node.population == 0 || row >= height || col >= width || row + side <= 0 || col + side <= 0) {
+            return;
+        }
+        if (node.level == 0) {
+            state[(int) row][(int) col] = true;
+            return;
+        }
+        long half = side >>> 1;
+        collect(node.nw, row, col, state);
+        collect(node.ne, row, col + half, state);
+        collect(node.sw, row + half, col, state);
+        collect(node.se, row + half, col + half, state);
+    }
+
+    /**
+     * method to rebuild the path to one cell with a new value
+     * @param node the node holding the cell
+     * @param row the row of the cell within the node
+     * @param col the column of the cell within the node
+     * @param value live or dead cell
+     * @return the new canonical node
+     */
+    private Node setCell(Node node, long row, long col, boolean value) {
+        if (node.level == 0) {
+            return value ? alive : dead;
+        }
+        long half = 1L << (node.level - 1);
+        long r = row & (half - 1);
+        long c = col & (half - 1);
+        if (row < half) {
+            return col < half ? join(setCell(node.nw, r, c, value), node.ne, node.sw, node.se)
+                    : join(node.nw, setCell(node.ne, r, c, value), node.sw, node.se);
+        } else {
+            return col < half ? join(node.nw, node.ne, setCell(node.sw, r, c, value), node.se)
+                    : join(node.nw, node.ne, node.sw, setCell(node.se, r, c, value));
+        }
+    }
+
+    /**
+     * a canonical quadtree node, leaves are level 0 and hold a single cell
+     */
+    private static final class Node {
+        // the four quadrants, null for leaves
+        final Node nw;
+        final Node ne;
+        final Node sw;
+        final Node se;
+        // side of the node is 2^level cells
+        final int level;
+        final long population;
+        final int hash;
+        // next node in the same bucket of the hash-consing table
+        Node chain;
+        // memoized centre of this node 2^resultStep generations on
+        Node result;
+        int resultStep;
+        // set while collecting garbage
+        boolean marked;
+
+        Node(int population, int hash) {
+            this.nw = null;
+            this.ne = null;
+            this.sw = null;
+            this.se = null;
+            this.level = 0;
+            this.population = population;
+            this.hash = hash;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se, int hash) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = nw.level + 1;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+}
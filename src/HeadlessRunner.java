@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Command line runner for simulations on machines without a display. It loads a pattern file in any format
+ * BoardIO reads, runs it on a LifeBoard for a number of generations, stopping early if the board dies out or
+ * settles into a still life or oscillator, in which case the generations left are skipped to the same board
+ * the full run would end on. It then prints the throughput and final population. The LifeMetrics
+ * system properties turn on the same metrics as in the UI.
+ * Usage: java HeadlessRunner pattern [generations] [engine] [threads] [topology] [width] [height] [rule]
+ * The rule defaults to the one named in an RLE pattern's header, or B3/S23.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class HeadlessRunner {
+
+    // number of generations run when none are given
+    public static final long DEFAULT_GENERATIONS = 1000;
+    // longest period looked for when checking whether the board has settled
+    public static final int MAX_PERIOD = CycleDetector.DEFAULT_HISTORY;
+
+    /**
+     * loads the pattern, runs it and prints the report
+     * @param args pattern file, generations, engine, thread count, topology and board size
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            usage();
+        }
+        BoardSnapshot pattern = null;
+        Rule rule = null;
+        try {
+            pattern = BoardIO.read(Path.of(args[0]));
+            rule = BoardIO.readRule(Path.of(args[0]));
+        } catch (IOException e) {
+            System.err.println("Can't read pattern: " + e.getMessage());
+            System.exit(1);
+        }
+        long generations = DEFAULT_GENERATIONS;
+        String engineName = "packed";
+        int threads = 1;
+        Topology topology = Topology.DEAD;
+        int width = pattern.getWidth();
+        int height = pattern.getHeight();
+        try {
+            if (args.length >= 2) {
+                generations = Long.parseLong(args[1]);
+            }
+            if (args.length >= 3) {
+                engineName = args[2];
+            }
+            if (args.length >= 4) {
+                threads = Integer.parseInt(args[3]);
+            }
+            if (args.length >= 5) {
+                topology = Topology.parse(args[4]);
+            }
+            if (args.length >= 6) {
+                width = Integer.parseInt(args[5]);
+                height = width;
+            }
+            if (args.length >= 7) {
+                height = Integer.parseInt(args[6]);
+            }
+            if (args.length >= 8) {
+                rule = Rule.parse(args[7]);
+            }
+        } catch (IllegalArgumentException e) {
+            usage();
+        }
+        if (generations < 0 || threads < 1 || width < 1 || height < 1) {
+            usage();
+        }
+        LifeEngine engine = null;
+        try {
+            engine = Engines.create(engineName, width, height, threads, topology, rule);
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            // a bad name or size, or a board file that can't be mapped
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        LifeBoard board = new LifeBoard(engine);
+        board.setMetrics(LifeMetrics.fromSystemProperties("headless"));
+        // the pattern's cells are set straight into the engine, so no array of the whole board is ever made
+        place(pattern, engine);
+
+        System.out.printf("%s: %dx%d, %s, %s engine, %d thread%s, %s edges%n", args[0], width, height, rule,
+                engineName, threads, threads == 1 ? "" : "s", topology.name().toLowerCase());
+        String outcome = "ran " + generations + " generations";
+        CycleDetector detector = new CycleDetector(MAX_PERIOD);
+        long stepNanos = 0;
+        long ran = 0;
+        long start = System.nanoTime();
+        if (engine instanceof HashLifeEngine) {
+            // hashlife jumps the whole run a power of two at a time, and repeated structure in time is memoized,
+            // so it has no need to step one generation at a time looking for a cycle
+            ((HashLifeEngine) engine).advanceBy(generations);
+            stepNanos = System.nanoTime() - start;
+            ran = generations;
+        } else {
+            detector.observe(engine.getGeneration(), engine.getHash());
+        }
+        while (ran < generations) {
+            long before = System.nanoTime();
+            board.nextGen();
+            stepNanos += System.nanoTime() - before;
+            ran++;
+            if (detector.observe(engine.getGeneration(), engine.getHash()) != CycleDetector.Outcome.RUNNING) {
+                outcome = detector.describe();
+                // the board repeats, so stepping less than one more period lands on the same board as the last generation
+                long remaining = detector.remainingSteps(ran, generations);
+                before = System.nanoTime();
+                for (long i = 0; i < remaining; i++) {
+                    board.nextGen();
+                }
+                stepNanos += System.nanoTime() - before;
+                if (ran < generations) {
+                    outcome += ", fast-forwarded to generation " + generations;
+                }
+                ran += remaining;
+                break;
+            }
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        double stepping = Math.max(stepNanos, 1) / 1e9;
+        System.out.println("Outcome: " + outcome);
+        System.out.printf("Generations: %d in %.3f s (%.3f s stepping)%n", ran, wall, stepping);
+        System.out.printf("Generations/s: %.1f%n", ran / stepping);
+        System.out.printf("Cells/s: %.3e%n", ran * (double) width * height / stepping);
+        BoardStats stats = engine.getStats();
+        System.out.println("Final population: " + stats.getPopulation());
+        BoardStats.Bounds bounds = stats.getBoundingBox(engine);
+        System.out.println("Live area: " + (bounds == null ? "none" : bounds));
+        if (engine instanceof ParallelEngine) {
+            ((ParallelEngine) engine).shutdown();
+        }
+    }
+
+    /**
+     * method to print how the runner is used and exit
+     */
+    private static void usage() {
+        System.err.println("Usage: java HeadlessRunner pattern [generations] [" + String.join("|", Engines.NAMES)
+                + "|" + Engines.MAPPED_PREFIX + "file] [threads] [dead|torus|klein|mirror] [width] [height] [rule]");
+        System.exit(1);
+    }
+
+    /**
+     * method to set the live cells of a pattern in the middle of an empty engine, cutting off whatever doesn't
+     * fit. Only the live cells are visited, so it costs the size of the pattern rather than of the board
+     * @param pattern the pattern
+     * @param engine the engine
+     */
+    static void place(BoardSnapshot pattern, LifeEngine engine) {
+        int top = (engine.getHeight() - pattern.getHeight()) / 2;
+        int left = (engine.getWidth() - pattern.getWidth()) / 2;
+        for (int row = 0; row < pattern.getHeight(); row++) {
+            for (int w = 0; w < pattern.getWordsPerRow(); w++) {
+                long bits = pattern.word(row, w);
+                while (bits != 0) {
+                    engine.set(row + top, (w << 6) + Long.numberOfTrailingZeros(bits) + left, true);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * method to place a pattern in the middle of a board, cutting off whatever doesn't fit
+     * @param pattern the pattern
+     * @param width the number of columns on the board
+     * @param height the number of rows on the board
+     * @return the board
+     */
+    static BoardSnapshot center(BoardSnapshot pattern, int width, int height) {
+        int top = (height - pattern.getHeight()) / 2;
+        int left = (width - pattern.getWidth()) / 2;
+        int words = BoardSnapshot.wordsPerRow(width);
+        // multiplyExact fails fast on a board too large for one array, callers with boards that size should use place
+        long[] rows = new long[Math.multiplyExact(height, words)];
+        for (int row = 0; row < pattern.getHeight(); row++) {
+            int target = row + top;
+            if (target < 0 || target >= height) {
+                continue;
+            }
+            for (int w = 0; w < pattern.getWordsPerRow(); w++) {
+                long bits = pattern.word(row, w);
+                while (bits != 0) {
+                    int col = (w << 6) + Long.numberOfTrailingZeros(bits) + left;
+                    if (col >= 0 && col < width) {
+                        rows[target * words + (col >>> 6)] |= 1L << col;
+                    }
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return new BoardSnapshot(width, height, 0, rows);
+    }
+}
@@ -0,0 +1,679 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A record of the generations a board has been through. Every so often a whole generation is kept as a
+ * checkpoint, and the generations in between are kept as the words that changed, XORed against the generation
+ * before, so a board where little moves costs little to remember. Any remembered generation can be rebuilt by
+ * replaying the deltas from the checkpoint before it.
+ * <p>
+ * The history kept in memory is bounded: when it grows past its budget the oldest checkpoint and its deltas
+ * are dropped. The history can also be appended to a journal file by a single background thread, so the
+ * simulation never waits on the disk, and the newest generation in that file can be read back after a restart.
+ * If the writer falls behind, deltas are skipped until the next checkpoint rather than queued without end, so
+ * the file is always something that can be replayed. The file is bounded as well: clearing the history empties
+ * it, and once it holds too many checkpoints or bytes it is rewritten from the newest checkpoints.
+ * <p>
+ * Journal layout, all big-endian: the magic "LJNL" and an int version, then records. A checkpoint is the byte
+ * 'C', the generation, the width and height and the packed rows. A delta is the byte 'D', the generation, the
+ * number of changed words n, then n pairs of an int word index and the long XOR of the word.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class HistoryJournal implements AutoCloseable {
+
+    // "LJNL" in ASCII, the first four bytes of every journal file
+    public static final int MAGIC = 0x4C4A4E4C;
+    // version of the journal format written by this class
+    public static final int VERSION = 1;
+    // default number of generations between checkpoints
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 64;
+    // default limit on the memory the history may use
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    // default number of the newest checkpoints the journal file keeps, with the deltas after them
+    public static final int DEFAULT_FILE_CHECKPOINTS = 4;
+    // default limit on the size of the journal file
+    public static final long DEFAULT_MAX_FILE_BYTES = 256L << 20;
+
+    // record tags for checkpoints and deltas
+    private static final byte CHECKPOINT = 'C';
+    private static final byte DELTA = 'D';
+    // records the writer may fall behind by before deltas are skipped
+    private static final int MAX_PENDING = 256;
+    // bytes of the magic and version at the start of a journal file
+    private static final int HEADER_BYTES = 8;
+    // size of the buffer a journal is read back through
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * a checkpoint and the deltas for the generations straight after it
+     */
+    private static class Segment {
+        // the whole board at the first generation of the segment
+        private final BoardSnapshot checkpoint;
+        // the indices and XORs of the changed words of each following generation
+        private final List<int[]> indices = new ArrayList<>();
+        private final List<long[]> xors = new ArrayList<>();
+        // rough memory used by the segment
+        private long bytes;
+
+        private Segment(BoardSnapshot checkpoint) {
+            this.checkpoint = checkpoint;
+            this.bytes = (long) checkpoint.getHeight() * checkpoint.getWordsPerRow() * Long.BYTES;
+        }
+
+        private long lastGeneration() {
+            return checkpoint.getGeneration() + indices.size();
+        }
+    }
+
+    // generations between checkpoints and the memory budget of the history
+    private final int checkpointInterval;
+    private final long maxBytes;
+    // the remembered segments, oldest first, and the memory they use
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private long bytes;
+    // the cells of the newest generation recorded, packed like a BoardSnapshot's rows, which deltas are taken
+    // against and kept up to date by them; null until the first generation is recorded
+    private long[] rows;
+    private int width;
+    private int height;
+    private long generation;
+    // the indices and XORs of the delta being built, grown as needed and reused between generations
+    private int[] indexBuffer = new int[64];
+    private long[] xorBuffer = new long[64];
+    private int deltaCount;
+    // the journal file and its single writer thread, both null when the history is only kept in memory
+    private final Path file;
+    private final ThreadPoolExecutor writer;
+    // how many checkpoints and how many bytes the journal file may hold before its oldest segments are dropped
+    private final int fileCheckpoints;
+    private final long maxFileBytes;
+    // the open journal and where each checkpoint in it starts, oldest first, only touched by the writer thread
+    private FileChannel channel;
+    private final ArrayDeque<Long> checkpointOffsets = new ArrayDeque<>();
+    // set when a record couldn't be queued, so nothing but a checkpoint is written until one gets through
+    private boolean fileBroken;
+    // set by clear, so the next checkpoint empties the journal file before it is written
+    private boolean restartFile;
+
+    /**
+     * Constructor for a history kept only in memory, with the default interval and budget
+     */
+    public HistoryJournal() {
+        this(DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_MAX_BYTES, null);
+    }
+
+    /**
+     * Constructor for a history that is also written to a journal file, keeping the default number of
+     * checkpoints in the file. The file is created, replacing any earlier journal, by the writer thread when the
+     * first generation is recorded
+     * @param checkpointInterval generations between checkpoints
+     * @param maxBytes limit on the memory used by the history kept in memory
+     * @param file the journal file, or null to keep the history only in memory
+     */
+    public HistoryJournal(int checkpointInterval, long maxBytes, Path file) {
+        this(checkpointInterval, maxBytes, file, DEFAULT_FILE_CHECKPOINTS, DEFAULT_MAX_FILE_BYTES);
+    }
+
+    /**
+     * Constructor for a history that is also written to a journal file of bounded size. Once the file holds
+     * twice as many checkpoints as it keeps, or grows past its size limit, it is rewritten from the newest
+     * checkpoints that fit, so the disk is only written over again every so many checkpoints
+     * @param checkpointInterval generations between checkpoints
+     * @param maxBytes limit on the memory used by the history kept in memory
+     * @param file the journal file, or null to keep the history only in memory
+     * @param fileCheckpoints the newest checkpoints the file keeps, with the deltas after them
+     * @param maxFileBytes limit on the size of the file, though the newest checkpoint is always kept
+     */
+    public HistoryJournal(int checkpointInterval, long maxBytes, Path file, int fileCheckpoints, long maxFileBytes) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1: " + checkpointInterval);
+        }
+        if (fileCheckpoints < 1) {
+            throw new IllegalArgumentException("The journal file must keep at least 1 checkpoint: " + fileCheckpoints);
+        }
+        this.checkpointInterval = checkpointInterval;
+        this.maxBytes = maxBytes;
+        this.file = file;
+        this.fileCheckpoints = fileCheckpoints;
+        this.maxFileBytes = maxFileBytes;
+        if (file == null) {
+            this.writer = null;
+        } else {
+            this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(MAX_PENDING), r -> {
+                        Thread thread = new Thread(r, "history-journal");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * method to create a journal file and write its header
+     * @param file the file
+     * @return the open channel, positioned after the header
+     * @throws IOException if the file can't be written
+     */
+    private static FileChannel openJournal(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return channel;
+    }
+
+    /**
+     * method to remember a generation. Generations are expected one after another; anything else, such as a
+     * different board size or a gap, starts a new checkpoint. The delta is found in one pass over the words of
+     * the snapshot, for when a snapshot is being taken anyway
+     * @param snapshot the generation
+     */
+    public synchronized void record(BoardSnapshot snapshot) {
+        if (!follows(snapshot.getGeneration(), snapshot.getWidth(), snapshot.getHeight())) {
+            restart(snapshot);
+            return;
+        }
+        deltaCount = 0;
+        int words = snapshot.getWordsPerRow();
+        for (int row = 0; row < height; row++) {
+            int base = row * words;
+            for (int w = 0; w < words; w++) {
+                compare(base + w, snapshot.word(row, w));
+            }
+        }
+        finish(snapshot.getGeneration());
+    }
+
+    /**
+     * method to remember the generation an engine has just stepped to, reading only the words of the tiles its
+     * change set marks, so a board where little moves costs little to record. The change set must hold every
+     * change since the last generation recorded, which it does as long as it is only cleared after recording,
+     * as LifeUI's animation thread does; a gap or a jump in generation starts a new checkpoint from a snapshot
+     * @param engine the engine, which mustn't be stepping while this runs
+     */
+    public synchronized void record(LifeEngine engine) {
+        if (!follows(engine.getGeneration(), engine.getWidth(), engine.getHeight())) {
+            restart(engine.snapshot());
+            return;
+        }
+        deltaCount = 0;
+        int words = BoardSnapshot.wordsPerRow(width);
+        engine.getChanges().forEachDirty((top, left, count, cols) -> {
+            int first = left >>> 6;
+            int last = (left + cols - 1) >>> 6;
+            for (int row = top; row < top + count; row++) {
+                int base = row * words;
+                for (int w = first; w <= last; w++) {
+                    compare(base + w, engine.word(row, w));
+                }
+            }
+        });
+        finish(engine.getGeneration());
+    }
+
+    /**
+     * method to check whether a generation carries straight on from the newest one recorded
+     * @param next the generation
+     * @param nextWidth the width of its board
+     * @param nextHeight the height of its board
+     * @return true if it can be recorded as a delta
+     */
+    private boolean follows(long next, int nextWidth, int nextHeight) {
+        return rows != null && !segments.isEmpty() && next == generation + 1 && nextWidth == width && nextHeight == height;
+    }
+
+    /**
+     * method to compare a word of the new generation against the newest one recorded, adding it to the delta
+     * being built and bringing the recorded word up to date if it changed
+     * @param index the index of the word
+     * @param now the word in the new generation
+     */
+    private void compare(int index, long now) {
+        long diff = rows[index] ^ now;
+        if (diff == 0) {
+            return;
+        }
+        if (deltaCount == indexBuffer.length) {
+            indexBuffer = Arrays.copyOf(indexBuffer, deltaCount * 2);
+            xorBuffer = Arrays.copyOf(xorBuffer, deltaCount * 2);
+        }
+        indexBuffer[deltaCount] = index;
+        xorBuffer[deltaCount++] = diff;
+        rows[index] = now;
+    }
+
+    /**
+     * method to start a new checkpoint from a generation that doesn't follow on from the newest one recorded
+     * @param snapshot the generation
+     */
+    private void restart(BoardSnapshot snapshot) {
+        Segment current = segments.peekLast();
+        if (current != null && rows != null && snapshot.getGeneration() <= current.lastGeneration()) {
+            // going back over generations already remembered, so what came after them no longer happened
+            truncate(snapshot.getGeneration());
+        }
+        width = snapshot.getWidth();
+        height = snapshot.getHeight();
+        generation = snapshot.getGeneration();
+        int words = snapshot.getWordsPerRow();
+        rows = new long[height * words];
+        for (int row = 0; row < height; row++) {
+            for (int w = 0; w < words; w++) {
+                rows[row * words + w] = snapshot.word(row, w);
+            }
+        }
+        addCheckpoint(snapshot);
+    }
+
+    /**
+     * method to remember the delta just built, or a checkpoint if one is due. The recorded words were brought
+     * up to date while the delta was built, so a checkpoint is a copy of them
+     * @param next the generation the delta leads to
+     */
+    private void finish(long next) {
+        generation = next;
+        Segment current = segments.peekLast();
+        if (next - current.checkpoint.getGeneration() >= checkpointInterval) {
+            addCheckpoint(new BoardSnapshot(width, height, next, rows.clone()));
+            return;
+        }
+        int[] index = Arrays.copyOf(indexBuffer, deltaCount);
+        long[] xor = Arrays.copyOf(xorBuffer, deltaCount);
+        current.indices.add(index);
+        current.xors.add(xor);
+        long added = (long) deltaCount * (Integer.BYTES + Long.BYTES) + 32;
+        current.bytes += added;
+        bytes += added;
+        write(deltaRecord(next, index, xor), false, false);
+        trim();
+    }
+
+    /**
+     * method to start a new segment at a checkpoint and queue it for the journal file
+     * @param snapshot the checkpoint
+     */
+    private void addCheckpoint(BoardSnapshot snapshot) {
+        Segment segment = new Segment(snapshot);
+        segments.addLast(segment);
+        bytes += segment.bytes;
+        if (write(checkpointRecord(snapshot), true, restartFile)) {
+            restartFile = false;
+        }
+        trim();
+    }
+
+    /**
+     * method to drop the oldest history once it is over budget, but never the segment being added to
+     */
+    private void trim() {
+        while (bytes > maxBytes && segments.size() > 1) {
+            bytes -= segments.removeFirst().bytes;
+        }
+    }
+
+    /**
+     * method to forget the remembered generations from one onwards, for when the board is rewound and runs on
+     * @param generation the first generation to forget
+     */
+    private void truncate(long generation) {
+        while (!segments.isEmpty() && segments.peekLast().checkpoint.getGeneration() >= generation) {
+            bytes -= segments.removeLast().bytes;
+        }
+        Segment tail = segments.peekLast();
+        if (tail != null) {
+            while (tail.lastGeneration() >= generation) {
+                int last = tail.indices.size() - 1;
+                long removed = (long) tail.indices.get(last).length * (Integer.BYTES + Long.BYTES) + 32;
+                tail.indices.remove(last);
+                tail.xors.remove(last);
+                tail.bytes -= removed;
+                bytes -= removed;
+            }
+        }
+    }
+
+    /**
+     * method to rebuild a remembered generation
+     * @param generation the generation
+     * @return the board at that generation, or null if it isn't remembered
+     */
+    public synchronized BoardSnapshot rewind(long generation) {
+        Iterator<Segment> it = segments.descendingIterator();
+        while (it.hasNext()) {
+            Segment segment = it.next();
+            long first = segment.checkpoint.getGeneration();
+            if (generation >= first && generation <= segment.lastGeneration()) {
+                BoardSnapshot checkpoint = segment.checkpoint;
+                if (generation == first) {
+                    return checkpoint;
+                }
+                int words = checkpoint.getWordsPerRow();
+                long[] rows = new long[checkpoint.getHeight() * words];
+                for (int row = 0; row < checkpoint.getHeight(); row++) {
+                    for (int w = 0; w < words; w++) {
+                        rows[row * words + w] = checkpoint.word(row, w);
+                    }
+                }
+                for (int d = 0; d < generation - first; d++) {
+                    int[] index = segment.indices.get(d);
+                    long[] xor = segment.xors.get(d);
+                    for (int i = 0; i < index.length; i++) {
+                        rows[index[i]] ^= xor[i];
+                    }
+                }
+                return new BoardSnapshot(checkpoint.getWidth(), checkpoint.getHeight(), generation, rows);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * getter method for the oldest generation still remembered
+     * @return the generation, or -1 if nothing is remembered
+     */
+    public synchronized long getOldestGeneration() {
+        return segments.isEmpty() ? -1 : segments.peekFirst().checkpoint.getGeneration();
+    }
+
+    /**
+     * getter method for the newest generation remembered
+     * @return the generation, or -1 if nothing is remembered
+     */
+    public synchronized long getNewestGeneration() {
+        return segments.isEmpty() ? -1 : segments.peekLast().lastGeneration();
+    }
+
+    /**
+     * getter method for the rough number of bytes the remembered history takes
+     * @return the bytes
+     */
+    public synchronized long getMemoryBytes() {
+        return bytes;
+    }
+
+    /**
+     * method to forget the whole history, for when a new board is started. The next generation recorded is a
+     * checkpoint, and the journal file is emptied back to its header before it is written
+     */
+    public synchronized void clear() {
+        segments.clear();
+        bytes = 0;
+        rows = null;
+        restartFile = true;
+    }
+
+    /**
+     * method to queue a record for the journal file
+     * @param record the record, ready to write
+     * @param checkpoint whether the record is a checkpoint, which the file can always be picked up again from
+     * @param restart whether to empty the file before writing the record, only for checkpoints
+     * @return true if the record was queued
+     */
+    private boolean write(ByteBuffer record, boolean checkpoint, boolean restart) {
+        if (writer == null || (fileBroken && !checkpoint)) {
+            return false;
+        }
+        try {
+            writer.execute(() -> {
+                try {
+                    if (channel == null) {
+                        channel = openJournal(file);
+                    }
+                    if (restart) {
+                        channel.truncate(HEADER_BYTES);
+                        channel.position(HEADER_BYTES);
+                        checkpointOffsets.clear();
+                    }
+                    if (checkpoint) {
+                        checkpointOffsets.addLast(channel.position());
+                    }
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                    if (checkpoint) {
+                        compact();
+                    }
+                } catch (IOException e) {
+                    // the journal is a convenience, so losing it mustn't stop the simulation
+                    writer.shutdownNow();
+                }
+            });
+            fileBroken = false;
+            return true;
+        } catch (RejectedExecutionException e) {
+            fileBroken = true;
+            return false;
+        }
+    }
+
+    /**
+     * method for the writer thread to drop the oldest segments of the journal file once it holds too many
+     * checkpoints or too many bytes. What is kept is copied after a new header in a temporary file, which then
+     * replaces the journal, so a crash part way through leaves one whole journal or the other
+     * @throws IOException if the file can't be rewritten
+     */
+    private void compact() throws IOException {
+        long size = channel.position();
+        if (checkpointOffsets.size() <= 2 * fileCheckpoints && size <= maxFileBytes) {
+            return;
+        }
+        while (checkpointOffsets.size() > fileCheckpoints
+                || (checkpointOffsets.size() > 1 && size - checkpointOffsets.peekFirst() + HEADER_BYTES > maxFileBytes / 2)) {
+            checkpointOffsets.removeFirst();
+        }
+        long from = checkpointOffsets.peekFirst();
+        if (from == HEADER_BYTES) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = openJournal(temp)) {
+            long copied = 0;
+            while (copied < size - from) {
+                copied += channel.transferTo(from + copied, size - from - copied, out);
+            }
+            out.force(false);
+        }
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(HEADER_BYTES + size - from);
+        long shift = from - HEADER_BYTES;
+        int count = checkpointOffsets.size();
+        for (int i = 0; i < count; i++) {
+            checkpointOffsets.addLast(checkpointOffsets.removeFirst() - shift);
+        }
+    }
+
+    /**
+     * method to build the record for a checkpoint
+     * @param snapshot the generation
+     * @return the record
+     */
+    private static ByteBuffer checkpointRecord(BoardSnapshot snapshot) {
+        int words = snapshot.getHeight() * snapshot.getWordsPerRow();
+        ByteBuffer record = ByteBuffer.allocate(1 + Long.BYTES + 2 * Integer.BYTES + words * Long.BYTES);
+        record.put(CHECKPOINT).putLong(snapshot.getGeneration()).putInt(snapshot.getWidth()).putInt(snapshot.getHeight());
+        for (int row = 0; row < snapshot.getHeight(); row++) {
+            for (int w = 0; w < snapshot.getWordsPerRow(); w++) {
+                record.putLong(snapshot.word(row, w));
+            }
+        }
+        return record.flip();
+    }
+
+    /**
+     * method to build the record for a delta
+     * @param generation the generation the delta leads to
+     * @param index the indices of the changed words
+     * @param xor the XORs of the changed words
+     * @return the record
+     */
+    private static ByteBuffer deltaRecord(long generation, int[] index, long[] xor) {
+        ByteBuffer record = ByteBuffer.allocate(1 + Long.BYTES + Integer.BYTES + index.length * (Integer.BYTES + Long.BYTES));
+        record.put(DELTA).putLong(generation).putInt(index.length);
+        for (int i = 0; i < index.length; i++) {
+            record.putInt(index[i]).putLong(xor[i]);
+        }
+        return record.flip();
+    }
+
+    /**
+     * method to write out everything queued for the journal file and close it
+     */
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // nothing more can be done with a journal that won't close
+        }
+    }
+
+    /**
+     * method to read the newest complete generation from a journal file, for resuming after a restart. A
+     * record cut short by a crash is ignored, as is any delta that doesn't follow on from the generation before.
+     * The file is read through a buffer rather than mapped, since a journal can be larger than a single mapping
+     * @param file the journal file
+     * @return the newest generation in the file
+     * @throws IOException if the file can't be read or holds no generations
+     */
+    public static BoardSnapshot readLatest(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocateDirect(READ_BUFFER_BYTES).flip();
+            if (!ensure(in, data, HEADER_BYTES) || data.getInt() != MAGIC) {
+                throw new IOException("Not a history journal: " + file.getFileName());
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported journal version " + version + " in " + file.getFileName());
+            }
+            int width = 0;
+            int height = 0;
+            long generation = -1;
+            long[] rows = null;
+            while (ensure(in, data, 1 + Long.BYTES + Integer.BYTES)) {
+                byte tag = data.get();
+                long recordGeneration = data.getLong();
+                if (tag == CHECKPOINT) {
+                    if (!ensure(in, data, 2 * Integer.BYTES)) {
+                        break;
+                    }
+                    int w = data.getInt();
+                    int h = data.getInt();
+                    long count = (long) BoardSnapshot.wordsPerRow(w) * h;
+                    if (w < 1 || h < 1 || count > Integer.MAX_VALUE - 8 || count * Long.BYTES > remaining(in, data)) {
+                        break;
+                    }
+                    long[] read = new long[(int) count];
+                    int done = 0;
+                    while (done < read.length) {
+                        ensure(in, data, Long.BYTES);
+                        int words = Math.min(read.length - done, data.remaining() / Long.BYTES);
+                        data.asLongBuffer().get(read, done, words);
+                        data.position(data.position() + words * Long.BYTES);
+                        done += words;
+                    }
+                    width = w;
+                    height = h;
+                    rows = read;
+                    generation = recordGeneration;
+                } else if (tag == DELTA) {
+                    int count = data.getInt();
+                    long bytes = (long) count * (Integer.BYTES + Long.BYTES);
+                    if (count < 0 || bytes > remaining(in, data)) {
+                        break;
+                    }
+                    if (rows == null || recordGeneration != generation + 1) {
+                        // a delta whose predecessor was skipped, wait for the next checkpoint
+                        long skip = bytes - data.remaining();
+                        if (skip <= 0) {
+                            data.position(data.position() + (int) bytes);
+                        } else {
+                            data.position(data.limit());
+                            in.position(in.position() + skip);
+                        }
+                        continue;
+                    }
+                    // the whole record is known to be in the file, so it can be applied as it is read
+                    for (int i = 0; i < count; i++) {
+                        ensure(in, data, Integer.BYTES + Long.BYTES);
+                        int index = data.getInt();
+                        long xor = data.getLong();
+                        if (index >= 0 && index < rows.length) {
+                            rows[index] ^= xor;
+                        }
+                    }
+                    generation = recordGeneration;
+                } else {
+                    break;
+                }
+            }
+            if (rows == null) {
+                throw new IOException("No generations in journal " + file.getFileName());
+            }
+            return new BoardSnapshot(width, height, generation, rows);
+        }
+    }
+
+    /**
+     * method to make sure a number of bytes are waiting in a read buffer, reading more from the file if not
+     * @param in the file
+     * @param data the buffer, ready to be read from
+     * @param bytes the bytes needed, no more than the buffer holds
+     * @return true if they are there, false if the file ended first
+     * @throws IOException if the file can't be read
+     */
+    private static boolean ensure(FileChannel in, ByteBuffer data, int bytes) throws IOException {
+        if (data.remaining() >= bytes) {
+            return true;
+        }
+        data.compact();
+        while (data.position() < bytes) {
+            if (in.read(data) < 0) {
+                data.flip();
+                return false;
+            }
+        }
+        data.flip();
+        return true;
+    }
+
+    /**
+     * getter method for the bytes left to read, in the buffer and in the file after it
+     * @param in the file
+     * @param data the buffer
+     * @return the bytes left
+     * @throws IOException if the file can't be read
+     */
+    private static long remaining(FileChannel in, ByteBuffer data) throws IOException {
+        return data.remaining() + in.size() - in.position();
+    }
+}
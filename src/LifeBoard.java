@@ -4,47 +4,99 @@
  * Minimal
  */
 
-import javax.swing.*;
-import java.awt.*;
-import java.util.Arrays;
-
 /**
- * A class to implement the algorithm for Conway's Game of Life using boolean logic
+ * A class to implement the algorithm for Conway's Game of Life using boolean logic. The board holds no Swing
+ * components, so it can run on a machine without a display; LifeUI draws it through a CellCanvas
  * @author Aaron Howe
  * @version JDK 17
  */
-public class LifeBoard extends JPanel {
+public class LifeBoard {
 
-    // private field to initialize a 2D array
-    private boolean[][] cells;
-    // public field to set the grid size
+    // private field for the engine that stores the cells and computes the generations
+    private LifeEngine engine;
+    // private field for the metrics each generation is recorded in, null when they are off
+    private LifeMetrics metrics;
+    // public field for the grid size used when no dimensions are given
     public static final int GRID_SIZE = 19;
 
     /**
-     * Constructor to set the grid
+     * Constructor to set the grid, sized to match the initial state
      * @param initialState the initial state of the board
      */
     public LifeBoard(boolean[][] initialState) {
-        cells = initialState;
-        // set the layout in a grid using the GRID_SIZE field for dimensions
-        setLayout(new GridLayout(GRID_SIZE, GRID_SIZE));
-        for (int row = 0; row < cells.length; row++) {
-            for (int col = 0; col < cells[row].length; col++) {
-                JButton button = new JButton();
-                // method call updateCell to update the text of the buttons
-                updateCell(button, cells[row][col]);
-                // add the buttons to the board
-                add(button);
-            }
-        }
+        this(initialState, new BitPackedEngine(widthOf(initialState), Math.max(1, initialState.length)));
+    }
+
+    /**
+     * Constructor for an empty board of any size
+     * @param width the number of columns
+     * @param height the number of rows
+     */
+    public LifeBoard(int width, int height) {
+        this.engine = new BitPackedEngine(width, height);
     }
 
     /**
-     * getter method to return the private field cells
+     * Constructor for a board around an engine that already holds its cells
+     * @param engine the engine that stores the cells and computes the generations
+     */
+    public LifeBoard(LifeEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Constructor to set the grid using a specific generation engine
+     * @param initialState the initial state of the board
+     * @param engine the engine that stores the cells and computes the generations
+     */
+    public LifeBoard(boolean[][] initialState, LifeEngine engine) {
+        this.engine = engine;
+        engine.load(initialState);
+    }
+
+    /**
+     * getter method to return a copy of the cells held by the engine
      * @return the cells
      */
     public boolean[][] getCells() {
-        return cells;
+        return engine.toArray();
+    }
+
+    /**
+     * getter method for the number of columns on the board
+     * @return the width
+     */
+    public int getBoardWidth() {
+        return engine.getWidth();
+    }
+
+    /**
+     * getter method for the number of rows on the board
+     * @return the height
+     */
+    public int getBoardHeight() {
+        return engine.getHeight();
+    }
+
+    /**
+     * method to find the widest row of a 2D array so ragged arrays still fit on the board
+     * @param state the state to measure
+     * @return the width of the widest row, at least 1
+     */
+    private static int widthOf(boolean[][] state) {
+        int width = 1;
+        for (boolean[] row : state) {
+            width = Math.max(width, row.length);
+        }
+        return width;
+    }
+
+    /**
+     * getter method for the generation engine behind the board
+     * @return the engine
+     */
+    public LifeEngine getEngine() {
+        return engine;
     }
 
     /**
@@ -54,10 +106,10 @@ public class LifeBoard extends JPanel {
      * @return the board
      */
     public boolean printBoard(int row, int col) {
-        if (row < 0 || row >= GRID_SIZE || col < 0 || col >= GRID_SIZE) {
+        if (row < 0 || row >= engine.getHeight() || col < 0 || col >= engine.getWidth()) {
             return false;
         } else {
-            return cells[row][col];
+            return engine.get(row, col);
         }
     }
 
@@ -113,55 +165,47 @@ public class LifeBoard extends JPanel {
      * @return alive or dead (true or false)
      */
     public boolean isAlive(int numNeighbors, boolean cellState) {
-        if (cellState) {
-            return numNeighbors == 2 || numNeighbors == 3;
-        } else {
-            return numNeighbors == 3;
-        }
+        // looked up in the engine's rule table, B3/S23 unless another rule was chosen
+        return engine.getRule().next(cellState, numNeighbors);
     }
 
     /**
      * method to generate the new board of cells
      */
     public void nextGen() {
-        // construct new 2D array and set it to the dimensions of GRID_SIZE
-        boolean[][] newState = new boolean[GRID_SIZE][GRID_SIZE];
-        for (int row = 0; row < cells.length; row++) {
-            for (int col = 0; col < cells[row].length; col++) {
-                // set the state of newState using the returns of checkNeighbors and isAlive
-                newState[row][col] = isAlive(checkNeighbors(row, col), cells[row][col]);
-            }
+        // the engine steps its own double-buffered storage, so no new array is allocated per generation
+        if (metrics == null) {
+            engine.step();
+            return;
+        }
+        BoardStats stats = metrics.shouldSample(engine.getGeneration()) ? engine.getStats() : null;
+        // engines that keep their statistics as they step have the sample for free, the others pay for comparing
+        // the board before and after
+        BoardSnapshot before = stats != null && !stats.isIncremental() ? engine.snapshot() : null;
+        long start = System.nanoTime();
+        engine.step();
+        metrics.recordStep(System.nanoTime() - start);
+        if (before != null) {
+            metrics.recordSample(before, engine.snapshot());
+        } else if (stats != null) {
+            metrics.recordSample(stats.getPopulation(), stats.getBirths(), stats.getDeaths());
         }
-        // set the state of newState to cells and call updateBoard
-        cells = newState;
-        updateBoard();
     }
 
     /**
-     * method to update the text on the buttons based on life or death
-     * @param button the button representing the cell
-     * @param alive live or dead cell
+     * getter method for the metrics generations are recorded in
+     * @return the metrics, or null if they are off
      */
-    public void updateCell(JButton button, boolean alive) {
-        if (alive) {
-            button.setText("O");
-        } else {
-            button.setText(".");
-        }
+    public LifeMetrics getMetrics() {
+        return metrics;
     }
 
     /**
-     * method to update the components of the grid
+     * setter method for the metrics generations are recorded in
+     * @param metrics the metrics, or null to turn them off
      */
-    public void updateBoard() {
-        Component[] comp = getComponents();
-        for (int i = 0; i < comp.length; i++) {
-            JButton button = (JButton) comp[i];
-            int row = i / GRID_SIZE;
-            int col = i % GRID_SIZE;
-            updateCell(button, cells[row][col]);
-        }
-        System.out.println(Arrays.deepToString(cells));
+    public void setMetrics(LifeMetrics metrics) {
+        this.metrics = metrics;
     }
 
     /**
@@ -169,6 +213,14 @@ public class LifeBoard extends JPanel {
      * @param state current state of the game
      */
     public void setBoardState(boolean[][] state) {
-        this.cells = state;
+        engine.load(state);
+    }
+
+    /**
+     * stores a saved board as the current state of the game
+     * @param snapshot the saved board
+     */
+    public void setBoardState(BoardSnapshot snapshot) {
+        engine.load(snapshot);
     }
 }
@@ -0,0 +1,139 @@
+/**
+ * An interface for the generation engines that can sit behind a LifeBoard
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public interface LifeEngine {
+
+    /**
+     * getter method for the number of columns on the board
+     * @return the width of the board
+     */
+    int getWidth();
+
+    /**
+     * getter method for the number of rows on the board
+     * @return the height of the board
+     */
+    int getHeight();
+
+    /**
+     * method to read a single cell, anything off the board is dead
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return alive or dead (true or false)
+     */
+    boolean get(int row, int col);
+
+    /**
+     * method to read 64 cells of a row at once, packed the same as a BoardSnapshot's words. Engines that keep
+     * their cells packed copy the word out; this default reads the cells one at a time
+     * @param row the row
+     * @param word the word of the row, covering columns word * 64 to word * 64 + 63
+     * @return the packed cells
+     */
+    default long word(int row, int word) {
+        long bits = 0;
+        int last = Math.min(getWidth(), (word + 1) << 6);
+        for (int col = word << 6; col < last; col++) {
+            if (get(row, col)) {
+                bits |= 1L << col;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * method to set a single cell, anything off the board is ignored
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param alive live or dead cell
+     */
+    void set(int row, int col, boolean alive);
+
+    /**
+     * method to copy a 2D array of cells into the engine, missing cells are treated as dead
+     * @param state the state to load
+     */
+    void load(boolean[][] state);
+
+    /**
+     * method to copy a snapshot into the engine, cells outside the snapshot are dead and cells outside the
+     * engine are dropped. Engines carry on counting from the snapshot's generation, which is what lets a
+     * rewound or resumed board keep its place in the history
+     * @param snapshot the snapshot to load
+     */
+    default void load(BoardSnapshot snapshot) {
+        boolean[][] state = new boolean[Math.min(getHeight(), snapshot.getHeight())][Math.min(getWidth(), snapshot.getWidth())];
+        for (int row = 0; row < state.length; row++) {
+            for (int col = 0; col < state[row].length; col++) {
+                state[row][col] = snapshot.get(row, col);
+            }
+        }
+        load(state);
+    }
+
+    /**
+     * method to copy the cells of the engine out into a new 2D array
+     * @return the current state of the board
+     */
+    boolean[][] toArray();
+
+    /**
+     * method to advance the board by one generation
+     */
+    void step();
+
+    /**
+     * method to take an immutable copy of the board that can be handed to another thread
+     * @return the snapshot
+     */
+    default BoardSnapshot snapshot() {
+        return BoardSnapshot.of(this);
+    }
+
+    /**
+     * getter method for the rule the engine computes generations with
+     * @return the rule
+     */
+    Rule getRule();
+
+    /**
+     * getter method for the tiles whose cells changed since the change set was last cleared. Loading marks the
+     * whole board, setting a cell marks its tile and stepping marks whatever the generation changed
+     * @return the change set
+     */
+    ChangeSet getChanges();
+
+    /**
+     * getter method for a hash of the cells, zero for an empty board, for CycleDetector. Hashes can only be
+     * compared between generations of the same engine. Engines that can keep the hash up to date as cells
+     * change do; this default hashes a snapshot of the whole board
+     * @return the hash
+     */
+    default long getHash() {
+        BoardSnapshot snapshot = snapshot();
+        long hash = 0;
+        for (int row = 0; row < snapshot.getHeight(); row++) {
+            for (int w = 0; w < snapshot.getWordsPerRow(); w++) {
+                hash ^= CycleDetector.hashWord((long) row * snapshot.getWordsPerRow() + w, snapshot.word(row, w));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * getter method for the population statistics of the board. Engines that can keep them up to date as cells
+     * change return the same live object every time; this default counts a snapshot, without births and deaths
+     * @return the statistics
+     */
+    default BoardStats getStats() {
+        return BoardStats.of(snapshot());
+    }
+
+    /**
+     * getter method for the number of generations stepped since the last load
+     * @return the generation
+     */
+    long getGeneration();
+}
@@ -0,0 +1,244 @@
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and histograms for a running simulation: time per generation, population, births and deaths, time
+ * per frame and generations never drawn. Step and render times are recorded every time since they only cost
+ * a clock read. Population, births and deaths need the board compared before and after a generation, so they
+ * are only sampled every so many generations.
+ * <p>
+ * Metrics are off unless asked for. Running with -Dlife.metrics=true registers them over JMX;
+ * -Dlife.metrics.report=seconds also prints them that often, as CSV to the file named by -Dlife.metrics.csv if
+ * given or as text to the console otherwise; -Dlife.metrics.sample=generations sets the sample interval.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class LifeMetrics implements LifeMetricsMBean {
+
+    // default number of generations between samples of population, births and deaths
+    public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+    // histograms of what is recorded, times in nanoseconds
+    private final LogHistogram stepNanos = new LogHistogram();
+    private final LogHistogram population = new LogHistogram();
+    private final LogHistogram births = new LogHistogram();
+    private final LogHistogram deaths = new LogHistogram();
+    private final LogHistogram renderNanos = new LogHistogram();
+    // generations stepped and generations replaced before being drawn
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile int sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+    /**
+     * method to set up metrics as the system properties ask
+     * @param name the name to register the metrics under over JMX
+     * @return the metrics, or null if they weren't asked for
+     */
+    public static LifeMetrics fromSystemProperties(String name) {
+        boolean enabled = Boolean.getBoolean("life.metrics");
+        long reportSeconds = Long.getLong("life.metrics.report", 0L);
+        if (!enabled && reportSeconds <= 0) {
+            return null;
+        }
+        LifeMetrics metrics = new LifeMetrics();
+        metrics.setSampleInterval(Integer.getInteger("life.metrics.sample", DEFAULT_SAMPLE_INTERVAL));
+        if (enabled) {
+            metrics.register(name);
+        }
+        if (reportSeconds > 0) {
+            String csv = System.getProperty("life.metrics.csv");
+            MetricsReporter reporter = csv == null ? new MetricsReporter(metrics, System.out)
+                    : MetricsReporter.toCsv(metrics, Path.of(csv));
+            reporter.start(reportSeconds, TimeUnit.SECONDS);
+        }
+        return metrics;
+    }
+
+    /**
+     * method to register the metrics with the platform MBean server, a failure is reported and otherwise ignored
+     * @param name the name the metrics are listed under
+     */
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("life:type=LifeMetrics,name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            System.err.println("Can't register metrics over JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * method to decide whether the generation about to be stepped should be sampled
+     * @param generation the generation about to be stepped
+     * @return true to sample it
+     */
+    public boolean shouldSample(long generation) {
+        return generation % sampleInterval == 0;
+    }
+
+    /**
+     * method to record the time taken to step a generation
+     * @param nanos the time in nanoseconds
+     */
+    public void recordStep(long nanos) {
+        generations.incrementAndGet();
+        stepNanos.record(nanos);
+    }
+
+    /**
+     * method to record the population, births and deaths of a sampled generation
+     * @param before the board before the generation
+     * @param after the board after the generation
+     */
+    public void recordSample(BoardSnapshot before, BoardSnapshot after) {
+        long live = 0;
+        long born = 0;
+        long died = 0;
+        int words = Math.min(before.getWordsPerRow(), after.getWordsPerRow());
+        for (int row = 0; row < Math.min(before.getHeight(), after.getHeight()); row++) {
+            for (int w = 0; w < words; w++) {
+                long was = before.word(row, w);
+                long now = after.word(row, w);
+                live += Long.bitCount(now);
+                born += Long.bitCount(now & ~was);
+                died += Long.bitCount(was & ~now);
+            }
+        }
+        recordSample(live, born, died);
+    }
+
+    /**
+     * method to record the population, births and deaths of a sampled generation already counted by the engine
+     * @param live the population after the generation
+     * @param born the cells born in the generation
+     * @param died the cells that died in the generation
+     */
+    public void recordSample(long live, long born, long died) {
+        population.record(live);
+        births.record(born);
+        deaths.record(died);
+    }
+
+    /**
+     * method to record the time taken to draw a frame
+     * @param nanos the time in nanoseconds
+     */
+    public void recordRender(long nanos) {
+        renderNanos.record(nanos);
+    }
+
+    /**
+     * method to count generations that were replaced before being drawn
+     * @param count the number of generations
+     */
+    public void addDroppedFrames(long count) {
+        droppedFrames.addAndGet(count);
+    }
+
+    /**
+     * getter method for the histogram of step times
+     * @return the histogram, in nanoseconds
+     */
+    public LogHistogram getStepHistogram() {
+        return stepNanos;
+    }
+
+    /**
+     * getter method for the histogram of sampled populations
+     * @return the histogram
+     */
+    public LogHistogram getPopulationHistogram() {
+        return population;
+    }
+
+    /**
+     * getter method for the histogram of sampled births
+     * @return the histogram
+     */
+    public LogHistogram getBirthsHistogram() {
+        return births;
+    }
+
+    /**
+     * getter method for the histogram of sampled deaths
+     * @return the histogram
+     */
+    public LogHistogram getDeathsHistogram() {
+        return deaths;
+    }
+
+    /**
+     * getter method for the histogram of frame times
+     * @return the histogram, in nanoseconds
+     */
+    public LogHistogram getRenderHistogram() {
+        return renderNanos;
+    }
+
+    @Override
+    public long getGenerations() {
+        return generations.get();
+    }
+
+    @Override
+    public double getStepMeanMicros() {
+        return stepNanos.getMean() / 1000;
+    }
+
+    @Override
+    public double getStepP99Micros() {
+        return stepNanos.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getStepMaxMicros() {
+        return stepNanos.getMax() / 1000.0;
+    }
+
+    @Override
+    public long getPopulation() {
+        return population.getLast();
+    }
+
+    @Override
+    public long getBirths() {
+        return births.getLast();
+    }
+
+    @Override
+    public long getDeaths() {
+        return deaths.getLast();
+    }
+
+    @Override
+    public double getRenderMeanMicros() {
+        return renderNanos.getMean() / 1000;
+    }
+
+    @Override
+    public long getFrames() {
+        return renderNanos.getCount();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    @Override
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    @Override
+    public void setSampleInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Sample interval must be at least 1: " + interval);
+        }
+        this.sampleInterval = interval;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The management interface LifeMetrics is exposed through over JMX, so jconsole or any other JMX client can
+ * watch a running simulation. Times are in microseconds
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public interface LifeMetricsMBean {
+
+    /**
+     * getter method for the number of generations stepped
+     * @return the count
+     */
+    long getGenerations();
+
+    /**
+     * getter method for the mean time to step a generation
+     * @return the mean in microseconds
+     */
+    double getStepMeanMicros();
+
+    /**
+     * getter method for the 99th percentile time to step a generation
+     * @return the estimate in microseconds
+     */
+    double getStepP99Micros();
+
+    /**
+     * getter method for the longest time taken to step a generation
+     * @return the time in microseconds
+     */
+    double getStepMaxMicros();
+
+    /**
+     * getter method for the population at the last sample
+     * @return the live cells
+     */
+    long getPopulation();
+
+    /**
+     * getter method for the births in the last sampled generation
+     * @return the cells that came alive
+     */
+    long getBirths();
+
+    /**
+     * getter method for the deaths in the last sampled generation
+     * @return the cells that died
+     */
+    long getDeaths();
+
+    /**
+     * getter method for the mean time to draw a frame
+     * @return the mean in microseconds
+     */
+    double getRenderMeanMicros();
+
+    /**
+     * getter method for the number of frames drawn
+     * @return the count
+     */
+    long getFrames();
+
+    /**
+     * getter method for the number of generations that were never drawn
+     * @return the count
+     */
+    long getDroppedFrames();
+
+    /**
+     * getter method for how often population, births and deaths are sampled
+     * @return the generations between samples
+     */
+    int getSampleInterval();
+
+    /**
+     * setter method for how often population, births and deaths are sampled
+     * @param interval the generations between samples, at least 1
+     */
+    void setSampleInterval(int interval);
+}
@@ -1,8 +1,13 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
-import java.io.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.TimeUnit;
 
@@ -13,26 +18,72 @@ import java.util.concurrent.TimeUnit;
  */
 public class LifeUI extends Component {
 
+    // file the history of the running board is journaled to, which Restore can resume from
+    public static final String JOURNAL_FILE = "history.journal";
+
     // member fields for the frame, panels, buttons for both the grid and user control buttons, and animation thread
     private LifeBoard board;
-    private boolean[][] initialState;
+    // the board as the current run started or was restored, packed and at its generation, which Reset goes back to
+    private BoardSnapshot initialState;
     private JFrame lifeFrame;
-    private JPanel lifePanel;
+    private CellCanvas canvas;
     private JPanel buttonPanel;
     private JPanel fileButtonPanel;
     private JLabel messageLabel;
-    private JButton[][] buttonGrid;
     private JTextField gpmTextField;
+    // runs the simulation as fast as possible instead of at the generations per minute entered
+    private JCheckBox maxSpeedBox;
+    // paces the animation thread at the rate entered, which the text field pushes to it as it is edited
+    private final GenerationScheduler scheduler = new GenerationScheduler(GenerationScheduler.UNLIMITED);
+    private long lastRateReportNanos;
     private JButton start;
     private JButton stop;
     private JButton reset;
+    private JButton back;
+    private JButton fit;
     private JButton save;
     private JButton restore;
     private boolean buttonsEnabled;
     private Thread startAnimation;
+    // pipelined mode: the simulation publishes snapshots and a timer draws the newest one at its own frame rate
+    private JCheckBox pipelineBox;
+    private JTextField fpsTextField;
+    private FramePipeline pipeline;
+    private Timer renderTimer;
+    // pipeline counters at the last rate report, and when it was made
+    private long lastTaken;
+    private long lastDropped;
+    private long lastReportNanos;
+    // the generations of the current run, for stepping back and for resuming from the journal after a restart
+    private HistoryJournal history;
+    // step, population and frame metrics, null unless turned on with the LifeMetrics system properties
+    private LifeMetrics metrics;
+    // stops the animations once the board dies out or settles into a still life or oscillator
+    private JCheckBox autoStopBox;
+    private final CycleDetector detector = new CycleDetector();
     private Color alive = Color.GREEN;
     private Color dead = Color.RED;
 
+    /**
+     * Constructor for an empty grid of any size
+     * @param width the number of columns
+     * @param height the number of rows
+     */
+    public LifeUI(int width, int height) {
+        this(width, height, 1);
+    }
+
+    /**
+     * Constructor for an empty grid of any size stepped by a number of worker threads
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param threads the number of threads used to compute each generation
+     */
+    public LifeUI(int width, int height, int threads) {
+        // the packed engine is split into row bands when threads are given
+        this(Engines.create("packed", width, height, threads));
+    }
+
     /**
      * Constructor for the grid of 2D Array of Booleans. Contains the logic for setting the state of cells manually,
      * and the logic for saving and restoring game files, as well as frame, panel, label, and button initialization.
@@ -40,13 +91,62 @@ public class LifeUI extends Component {
      * @param grid 2D into Array of Booleans to represent the cells of the game
      */
     public LifeUI(boolean[][] grid) {
+        this(grid, 1);
+    }
+
+    /**
+     * Constructor for the grid of 2D Array of Booleans, stepped by a number of worker threads
+     * @param grid 2D into Array of Booleans to represent the cells of the game
+     * @param threads the number of threads used to compute each generation, 1 steps on the animation thread
+     */
+    public LifeUI(boolean[][] grid, int threads) {
+        // the packed engine is split into row bands when threads are given
+        this(grid, Engines.create("packed", grid.length == 0 ? 1 : Math.max(1, grid[0].length),
+                Math.max(1, grid.length), threads));
+    }
+
+    /**
+     * Constructor for the grid of 2D Array of Booleans, stepped by a specific engine. For the unbounded engines
+     * the grid is a window onto the plane that the arrow keys move around
+     * @param grid 2D into Array of Booleans to represent the cells of the game
+     * @param engine the engine that stores the cells and computes the generations
+     */
+    public LifeUI(boolean[][] grid, LifeEngine engine) {
+        this(loaded(engine, grid));
+    }
+
+    /**
+     * Constructor for the cells an engine already holds, so no array of the whole grid is made. For the unbounded
+     * engines the grid is a window onto the plane that the arrow keys move around
+     * @param engine the engine that stores the cells and computes the generations
+     */
+    public LifeUI(LifeEngine engine) {
         // instance of the LifeBoard class for the logic of the game
-        this.board = new LifeBoard(grid);
+        this.board = new LifeBoard(engine);
+        this.metrics = LifeMetrics.fromSystemProperties("ui");
+        this.board.setMetrics(metrics);
         // initial state of the board, variably set by the user
-        this.initialState = board.getCells();
+        this.initialState = engine.snapshot();
         this.lifeFrame = new JFrame("Conway's Game of Life");
         this.lifeFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         this.lifeFrame.setLayout(new BorderLayout());
+        // the history is journaled to disk as the board runs, the file is only replaced once a new run starts
+        this.history = new HistoryJournal(HistoryJournal.DEFAULT_CHECKPOINT_INTERVAL, HistoryJournal.DEFAULT_MAX_BYTES,
+                Path.of(JOURNAL_FILE));
+        this.lifeFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                history.close();
+                // a parallel engine's worker threads outlive the window unless its pool is shut down, the animation
+                // is stopped first so it doesn't hand the pool another generation
+                if (startAnimation != null && startAnimation.isAlive()) {
+                    startAnimation.interrupt();
+                }
+                if (engine instanceof ParallelEngine) {
+                    ((ParallelEngine) engine).shutdown();
+                }
+            }
+        });
 
         // layout for the Start, Stop, and Reset buttons
         this.buttonPanel = new JPanel();
@@ -55,9 +155,48 @@ public class LifeUI extends Component {
 
         // text field for the user enter the rate at which the animation thread runs generations of life
         this.gpmTextField = new JTextField();
+        this.gpmTextField.setToolTipText("Generations per minute");
+        // every edit is pushed to the scheduler, so the animation thread never reads the text field
+        this.gpmTextField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                pushRate();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                pushRate();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                pushRate();
+            }
+        });
 
         this.buttonPanel.add(this.gpmTextField);
 
+        this.maxSpeedBox = new JCheckBox("Max speed");
+        this.maxSpeedBox.setToolTipText("Run generations as fast as possible, ignoring the generations per minute");
+        this.maxSpeedBox.addActionListener(e -> {
+            gpmTextField.setEnabled(!maxSpeedBox.isSelected());
+            pushRate();
+        });
+        this.buttonPanel.add(this.maxSpeedBox);
+
+        // pipelined mode and the frame rate it draws at, independent of the generation rate
+        this.pipelineBox = new JCheckBox("Pipelined");
+        this.pipelineBox.setToolTipText("Simulate and draw independently, skipping generations the screen can't keep up with");
+        this.buttonPanel.add(this.pipelineBox);
+        this.fpsTextField = new JTextField("60");
+        this.fpsTextField.setToolTipText("Frames per second in pipelined mode");
+        this.buttonPanel.add(this.fpsTextField);
+
+        // automatic stop once nothing new will happen
+        this.autoStopBox = new JCheckBox("Auto-stop", true);
+        this.autoStopBox.setToolTipText("Stop once the board dies out or settles into a still life or oscillator");
+        this.buttonPanel.add(this.autoStopBox);
+
         // start button that begins the animation thread
         this.start = new JButton("Start");
         this.start.addActionListener(e -> {
@@ -78,6 +217,18 @@ public class LifeUI extends Component {
 
         this.buttonPanel.add(this.reset);
 
+        // back button that steps the paused board back a generation from the history
+        this.back = new JButton("Back");
+        this.back.addActionListener(e -> stepBack());
+
+        this.buttonPanel.add(this.back);
+
+        // fit button that zooms the view onto the live cells
+        this.fit = new JButton("Fit");
+        this.fit.addActionListener(e -> fitView());
+
+        this.buttonPanel.add(this.fit);
+
         // initialization for the save button
         this.save = new JButton("Save Game");
         this.save.addActionListener(e -> {
@@ -97,14 +248,10 @@ public class LifeUI extends Component {
                             return;
                         }
                     }
-                    // output stream object
-                    FileOutputStream output = new FileOutputStream(file);
-                    // writes objects to an output stream
-                    ObjectOutputStream outputObj = new ObjectOutputStream(output);
-                    // writes the initial state to the object output stream
-                    outputObj.writeObject(initialState);
-                    outputObj.close();
-                    output.close();
+                    // writes the initial state, which is the board itself until a run starts, packed one bit per cell
+                    // or in RLE or plaintext if the extension asks for it
+                    BoardSnapshot state = start.getText().equals("Start") ? board.getEngine().snapshot() : initialState;
+                    BoardIO.write(file.toPath(), state, board.getEngine().getRule());
                     messageLabel.setText("Game Saved Successfully!");
                 } catch (IOException ex) {
                     messageLabel.setText("Error saving game: " + ex.getMessage());
@@ -117,6 +264,11 @@ public class LifeUI extends Component {
 
         this.restore = new JButton("Restore Saved Game");
         this.restore.addActionListener(e -> {
+            // the restored board is loaded into the engine the animation thread steps, so it must be stopped first
+            if (startAnimation != null && startAnimation.isAlive()) {
+                messageLabel.setText("Stop the animations before restoring a game!");
+                return;
+            }
             JFileChooser fileChooser = new JFileChooser();
             int returnValue = fileChooser.showOpenDialog(null);
             if (returnValue == JFileChooser.APPROVE_OPTION) {
@@ -131,23 +283,17 @@ public class LifeUI extends Component {
                             return;
                         }
                     }
-                    // input stream object
-                    FileInputStream input = new FileInputStream(file);
-                    // writes objects to an input stream
-                    ObjectInputStream inputObj = new ObjectInputStream(input);
-                    // reads the objects from the input stream and casts it to the 2D boolean array, set to the initial state
-                    initialState = (boolean[][]) inputObj.readObject();
-                    inputObj.close();
-                    input.close();
-                    // updates the current state of the game to the initial state from the file
-                    board.setBoardState(initialState);
+                    // reads the saved board in whichever format the file holds
+                    BoardSnapshot savedState = BoardIO.read(file.toPath());
+                    // updates the current state of the game to the initial state from the file, fitted to this board
+                    board.setBoardState(savedState);
+                    // kept as a snapshot so starting or resetting carries on from the generation it was saved at
+                    initialState = board.getEngine().snapshot();
                     // call to updateGrid() to create the initial state
                     updateGrid();
                     messageLabel.setText("Game Restored Successfully!");
                 } catch (IOException ex) {
                     messageLabel.setText("Error restoring game: " + ex.getMessage());
-                } catch (ClassNotFoundException ex) {
-                    messageLabel.setText("Error restoring game: Save file does not exist!");
                 }
             }
         });
@@ -155,48 +301,29 @@ public class LifeUI extends Component {
         this.fileButtonPanel.add(restore);
         this.buttonPanel.add(this.fileButtonPanel);
 
-        // layout of the button grid of cells
-        this.lifePanel = new JPanel();
-        this.lifePanel.setLayout(new GridLayout(initialState.length, initialState[0].length));
-        this.lifeFrame.add(this.lifePanel, BorderLayout.CENTER);
+        // a single painted canvas for the cells, clicks are turned into cell coordinates by the canvas
+        this.canvas = new CellCanvas(engine, alive, dead);
+        this.canvas.setCellClickListener((row, col) -> {
+            // check if the cells are enabled
+            if (buttonsEnabled) {
+                // toggles the clicked cell in the engine, which is where Start takes the initial state from
+                LifeEngine cells = board.getEngine();
+                cells.set(row, col, !cells.get(row, col));
+                canvas.refreshCell(row, col);
+            }
+        });
+        this.lifeFrame.add(this.canvas, BorderLayout.CENTER);
 
         this.messageLabel = new JLabel();
         this.lifeFrame.add(messageLabel, BorderLayout.SOUTH);
 
-        this.buttonGrid = new JButton[initialState.length][initialState[0].length];
-
-        // sets the state of the buttons to alive or dead based on user input
-        for (int i = 0; i < initialState.length; i++) {
-            for (int j = 0; j < initialState[i].length; j++) {
-                JButton button = new JButton(initialState[i][j] ? "O" : ".");
-                button.setBackground(Color.WHITE);
-                button.setEnabled(true);
-                button.setPreferredSize(new Dimension(45,45));
-                button.addActionListener(e -> {
-                    // check if the buttons are enabled
-                    if (buttonsEnabled) {
-                        // object used to listen for which button is clicked
-                        JButton clickedButton = (JButton) e.getSource();
-                        int row = -1;
-                        int col = -1;
-                        for (int i1 = 0; i1 < buttonGrid.length; i1++) {
-                            for (int j1 = 0; j1 < buttonGrid[0].length; j1++) {
-                                // determines the coordinate of the button click determined by the row and column assignment
-                                if (buttonGrid[i1][j1] == clickedButton) {
-                                    row = i1;
-                                    col = j1;
-                                    break;
-                                }
-                            }
-                        }
-                        // toggles the boolean value of a button click, setting the text accordingly
-                        initialState[row][col] = !initialState[row][col];
-                        clickedButton.setText(initialState[row][col] ? "O" : ".");
-                    }
-                });
-                this.buttonGrid[i][j] = button;
-                this.lifePanel.add(button);
-            }
+        // arrow keys pan the window across an unbounded plane a quarter of the window at a time
+        if (engine instanceof ChunkedPlaneEngine) {
+            ChunkedPlaneEngine plane = (ChunkedPlaneEngine) engine;
+            bindPan("UP", () -> plane.setViewOrigin(plane.getViewRow() - Math.max(1, plane.getHeight() / 4), plane.getViewCol()));
+            bindPan("DOWN", () -> plane.setViewOrigin(plane.getViewRow() + Math.max(1, plane.getHeight() / 4), plane.getViewCol()));
+            bindPan("LEFT", () -> plane.setViewOrigin(plane.getViewRow(), plane.getViewCol() - Math.max(1, plane.getWidth() / 4)));
+            bindPan("RIGHT", () -> plane.setViewOrigin(plane.getViewRow(), plane.getViewCol() + Math.max(1, plane.getWidth() / 4)));
         }
         this.lifeFrame.pack();
         this.lifeFrame.setVisible(true);
@@ -204,11 +331,40 @@ public class LifeUI extends Component {
     }
 
     /**
-     * getter method for the grid of buttons
-     * @return the grid of JButtons
+     * method to load a grid into an engine before a constructor hands the engine on
+     * @param engine the engine
+     * @param grid the cells to load
+     * @return the engine
      */
-    public JButton[][] getGrid() {
-        return buttonGrid;
+    private static LifeEngine loaded(LifeEngine engine, boolean[][] grid) {
+        engine.load(grid);
+        return engine;
+    }
+
+    /**
+     * method to bind an arrow key to moving the window, redrawing the grid afterwards
+     * @param key the name of the key
+     * @param move the change to the window origin
+     */
+    private void bindPan(String key, Runnable move) {
+        canvas.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(key), "pan" + key);
+        canvas.getActionMap().put("pan" + key, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                move.run();
+                updateGrid();
+                messageLabel.setText("Viewing plane from " + ((ChunkedPlaneEngine) board.getEngine()).getViewRow()
+                        + ", " + ((ChunkedPlaneEngine) board.getEngine()).getViewCol());
+            }
+        });
+    }
+
+    /**
+     * getter method for the canvas the cells are drawn on
+     * @return the canvas
+     */
+    public CellCanvas getCanvas() {
+        return canvas;
     }
 
     /**
@@ -220,23 +376,41 @@ public class LifeUI extends Component {
     }
 
     /**
-     * method to update the buttons of the board
+     * method to redraw the cells of the board
      */
     public void updateGrid() {
-        // uses the board object to access the getCells method and set it to the new board
-        boolean[][] cells = board.getCells();
-        for (int i = 0; i < cells.length; i++) {
-            for (int j = 0; j < cells[i].length; j++) {
-                if (cells[i][j]) {
-                    buttonGrid[i][j].setBackground(Color.GREEN);
-                    buttonGrid[i][j].setForeground(Color.BLACK);
-                    buttonGrid[i][j].setText("O");
-                } else {
-                    buttonGrid[i][j].setBackground(Color.RED);
-                    buttonGrid[i][j].setForeground(Color.BLACK);
-                    buttonGrid[i][j].setText(".");
-                }
+        // the canvas reads the cells straight from the engine, so no copy of the board is made
+        long start = System.nanoTime();
+        canvas.refresh();
+        if (metrics != null) {
+            metrics.recordRender(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * method to push the rate the user asked for to the scheduler, leaving it as it was if the text isn't a rate
+     * @return true if the scheduler now has the rate asked for
+     */
+    private boolean pushRate() {
+        if (maxSpeedBox.isSelected()) {
+            scheduler.setRate(GenerationScheduler.UNLIMITED);
+            return true;
+        }
+        String gpmText = gpmTextField.getText().trim();
+        if (gpmText.isEmpty()) {
+            return false;
+        }
+        try {
+            double gpm = Double.parseDouble(gpmText);
+            if (!(gpm > 0) || Double.isInfinite(gpm)) {
+                messageLabel.setText("Generations per minute must be more than 0!");
+                return false;
             }
+            scheduler.setRate(gpm / 60);
+            return true;
+        } catch (NumberFormatException e) {
+            messageLabel.setText("Only enter numbers for generations per minute!");
+            return false;
         }
     }
 
@@ -244,71 +418,72 @@ public class LifeUI extends Component {
      * method for the animation thread
      */
     public void startAnimation() {
-        String gpmText = gpmTextField.getText().trim();
         // check to ensure the user has entered a value for gpm
-        if (gpmText.isEmpty()) {
+        if (!pushRate()) {
             start.setEnabled(true);
             messageLabel.setText("Please enter a value for generations per minute!");
             return;
         }
-        // boolean object determines if an initial state is set
-        boolean setInitialState = false;
-        for (int i = 0; i < initialState.length; i++) {
-            for (int j = 0; j < initialState[i].length; j++) {
-                // check if the user set an initial state
-                if (initialState[i][j]) {
-                    setInitialState = true;
-                    break;
-                }
-            }
-        }
-        // check if the user didn't set an initial state
-        if (!setInitialState) {
+        // check if the user didn't set an initial state, from the engine's live count rather than a scan of the cells
+        if (board.getEngine().getStats().isEmpty()) {
             start.setEnabled(true);
             messageLabel.setText("You need to set an initial state of the game!");
             return;
         }
+        // the cells toggled since the last start or reset are already in the engine, so they become the initial state
+        BoardSnapshot starting = board.getEngine().snapshot();
+        if (start.getText().equals("Start")) {
+            initialState = starting;
+            history.clear();
+        }
+        // a checkpoint of the board as it starts, since cells toggled or stepped back while paused were never recorded
+        history.record(starting);
         buttonsEnabled = false;
         start.setEnabled(false);
         stop.setEnabled(true);
+        boolean pipelined = pipelineBox.isSelected();
+        pipelineBox.setEnabled(false);
+        // cells may have been toggled or stepped back since the last run, so the detector starts over
+        detector.reset();
+        detector.observe(board.getEngine().getGeneration(), board.getEngine().getHash());
+        if (pipelined) {
+            startRenderTimer();
+        }
 
-        // key listener for the JTextField
-        gpmTextField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyTyped(KeyEvent e) {
-                char c = e.getKeyChar();
-                // ignores non-digit characters and backspacing (a user can still highlight the text and replace it)
-                if (!Character.isDigit(c) || c == KeyEvent.VK_BACK_SPACE) {
-                    e.consume();
-                } else {
-                    String text  = gpmTextField.getText();
-                    String newText = text + c;
-                    try {
-                        int value = Integer.parseInt(newText);
-                        // check to prevent a user from entering values outside the 1 to 250 range
-                        if (value < 1 || value > 250) {
-                            e.consume();
-                            messageLabel.setText("Only enter values from 1 to 250!");
-                        }
-                    } catch (NumberFormatException n) {
-                        e.consume();
-                    }
-                }
-            }
-        });
         startAnimation = new Thread(() -> {
             // state of the animation not running by default
             boolean status = false;
+            scheduler.start();
+            lastRateReportNanos = System.nanoTime();
             // while running
             while (!status) {
                 try {
 
                     // call on nextGen() to run new generations
                     board.nextGen();
-                    // waits for the current generation to load before updating to a new generation
-                    SwingUtilities.invokeAndWait(this::updateGrid);
-                    // converts time in minutes to milliseconds, set at 30, divided by user input multiplied by 60 to run at *input* generations per minute
-                    Thread.sleep((long) (TimeUnit.MINUTES.toMillis(30) / (Double.parseDouble(gpmTextField.getText()) * 60)));
+                    if (pipelined) {
+                        // hand the generation to the render timer without waiting for it to be drawn
+                        BoardSnapshot snapshot = board.getEngine().snapshot();
+                        history.record(snapshot);
+                        pipeline.publish(snapshot);
+                    } else {
+                        // only the tiles the generation changed are read, before updateGrid clears them
+                        history.record(board.getEngine());
+                        // waits for the current generation to load before updating to a new generation
+                        SwingUtilities.invokeAndWait(this::updateGrid);
+                    }
+                    // the engine keeps its hash up to date as it steps, so checking costs next to nothing
+                    if (detector.observe(board.getEngine().getGeneration(), board.getEngine().getHash())
+                            != CycleDetector.Outcome.RUNNING && autoStopBox.isSelected()) {
+                        break;
+                    }
+                    // waits until the next generation is due, counting from when this one was due rather than when it finished
+                    scheduler.awaitNext();
+                    if (!pipelined && System.nanoTime() - lastRateReportNanos >= TimeUnit.SECONDS.toNanos(1)) {
+                        lastRateReportNanos = System.nanoTime();
+                        String rate = scheduler.describeRate();
+                        SwingUtilities.invokeLater(() -> messageLabel.setText("Running animations... " + rate));
+                    }
                 } catch (InterruptedException ex) {
                     status = true;
                 } catch (InvocationTargetException ex) {
@@ -318,12 +493,72 @@ public class LifeUI extends Component {
             buttonsEnabled = true;
             start.setEnabled(true);
             stop.setEnabled(false);
+            if (pipelined) {
+                // draw whatever the simulation published last, then stop the render timer
+                SwingUtilities.invokeLater(() -> {
+                    renderTimer.stop();
+                    renderFrame();
+                    pipelineBox.setEnabled(true);
+                });
+            } else {
+                SwingUtilities.invokeLater(() -> pipelineBox.setEnabled(true));
+            }
+            if (!status) {
+                // stopped by the detector rather than the stop button
+                SwingUtilities.invokeLater(() -> {
+                    start.setText("Resume");
+                    messageLabel.setText("Animations stopped: " + detector.describe());
+                });
+            }
         });
         // executes the thread
         startAnimation.start();
         messageLabel.setText("Running animations...");
     }
 
+    /**
+     * method to start the timer that draws the newest published generation at the requested frame rate
+     */
+    private void startRenderTimer() {
+        int fps = 60;
+        try {
+            fps = Math.max(1, Math.min(240, Integer.parseInt(fpsTextField.getText().trim())));
+        } catch (NumberFormatException e) {
+            fpsTextField.setText(String.valueOf(fps));
+        }
+        pipeline = new FramePipeline();
+        lastTaken = 0;
+        lastDropped = 0;
+        lastReportNanos = System.nanoTime();
+        renderTimer = new Timer(1000 / fps, e -> renderFrame());
+        renderTimer.start();
+    }
+
+    /**
+     * method for the render timer to draw the newest generation and report the rates once a second
+     */
+    private void renderFrame() {
+        BoardSnapshot snapshot = pipeline.take();
+        if (snapshot != null) {
+            long start = System.nanoTime();
+            canvas.draw(snapshot);
+            if (metrics != null) {
+                metrics.recordRender(System.nanoTime() - start);
+                metrics.addDroppedFrames(pipeline.getDropped() - lastDropped);
+                lastDropped = pipeline.getDropped();
+            }
+        }
+        long now = System.nanoTime();
+        if (now - lastReportNanos >= TimeUnit.SECONDS.toNanos(1)) {
+            double seconds = (now - lastReportNanos) / 1e9;
+            long taken = pipeline.getTaken();
+            messageLabel.setText(String.format("Running animations... %s, %.1f frames/s, %d generations dropped",
+                    scheduler.describeRate(), (taken - lastTaken) / seconds, pipeline.getDropped()));
+            lastTaken = taken;
+            lastReportNanos = now;
+        }
+    }
+
     /**
      * method for the stop button to pause the animation thread
      */
@@ -333,20 +568,56 @@ public class LifeUI extends Component {
             startAnimation.interrupt();
         }
         buttonsEnabled = true;
-        gpmTextField.setEnabled(true);
+        gpmTextField.setEnabled(!maxSpeedBox.isSelected());
         start.setText("Resume");
         start.setEnabled(true);
         stop.setEnabled(false);
         messageLabel.setText("Animations paused...");
     }
 
+    /**
+     * method for the back button to put the paused board back one generation, as far as the history goes
+     */
+    public void stepBack() {
+        if (startAnimation != null && startAnimation.isAlive()) {
+            messageLabel.setText("Stop the animations before stepping back!");
+            return;
+        }
+        long generation = board.getEngine().getGeneration();
+        BoardSnapshot previous = generation > 0 ? history.rewind(generation - 1) : null;
+        if (previous == null) {
+            messageLabel.setText("No earlier generations to go back to!");
+            return;
+        }
+        board.setBoardState(previous);
+        updateGrid();
+        start.setText("Resume");
+        messageLabel.setText("Back to generation " + previous.getGeneration());
+    }
+
+    /**
+     * method for the fit button to zoom and pan the paused board onto its live cells
+     */
+    public void fitView() {
+        if (startAnimation != null && startAnimation.isAlive()) {
+            messageLabel.setText("Stop the animations before fitting the view!");
+            return;
+        }
+        messageLabel.setText(canvas.fitToLiveArea() ? "" : "No live cells to fit the view to!");
+    }
+
     /**
      * method for the reset button to reset the board to the initial state that was set by the user
      */
     public void resetBoard() {
+        // the engine is stepped by the animation thread, so it can't be reloaded underneath it
+        if (startAnimation != null && startAnimation.isAlive()) {
+            messageLabel.setText("Stop the animations before resetting!");
+            return;
+        }
         start.setText("Start");
-        // create a new instance of LifeBoard with the initial state as its parameters
-        this.board = new LifeBoard(initialState);
+        // load the initial state back into the board's engine, at the generation it started from
+        board.setBoardState(initialState);
         // call on updateGrid() to reset the board
         updateGrid();
         messageLabel.setText("");
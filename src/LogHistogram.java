@@ -0,0 +1,90 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values in power of two buckets: bucket 0 holds zero and bucket b holds values
+ * from 2^(b-1) up to 2^b - 1. Recording is a couple of atomic increments, so the simulation thread can record
+ * every generation while the reporter and JMX read from other threads. Percentiles come out as the top of the
+ * bucket they fall in, which is within a factor of two, plenty for seeing where time goes.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class LogHistogram {
+
+    // one bucket per possible bit length of a long
+    private static final int BUCKETS = 65;
+
+    // counts per bucket, and the number, total, largest and most recent of the recorded values
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private volatile long last;
+
+    /**
+     * method to record a value, negative values count as zero
+     * @param value the value
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+        last = value;
+    }
+
+    /**
+     * getter method for the number of values recorded
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * getter method for the mean of the values recorded
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * getter method for the largest value recorded
+     * @return the largest value
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * getter method for the value recorded last
+     * @return the value
+     */
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * method to estimate a percentile as the top of the bucket it falls in
+     * @param percentile the percentile, from 0 to 100
+     * @return the estimate, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= rank) {
+                return b == 0 ? 0 : Math.min(max.get(), b == 64 ? Long.MAX_VALUE : (1L << b) - 1);
+            }
+        }
+        return max.get();
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive long keys to values, so lookups on the hot path never box a key.
+ * Slots are probed linearly and removals shift later entries back, so there are no tombstones.
+ * A null value marks an empty slot, which means null values can't be stored.
+ * @author Aaron Howe
+ * @version JDK 17
+ * @param <V> the type of the values
+ */
+public class LongKeyMap<V> {
+
+    // smallest number of slots the map will shrink to
+    private static final int MIN_CAPACITY = 16;
+
+    // parallel arrays of keys and values, a null value is an empty slot
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Constructor for an empty map
+     */
+    public LongKeyMap() {
+        keys = new long[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+    }
+
+    /**
+     * getter method for the number of entries
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * getter method for the number of slots, for walking the map with keyAt and valueAt
+     * @return the capacity
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * method to read the key stored in a slot
+     * @param slot the slot index
+     * @return the key, only meaningful if valueAt returns non-null
+     */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * method to read the value stored in a slot
+     * @param slot the slot index
+     * @return the value, or null if the slot is empty
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    /**
+     * method to look up a key
+     * @param key the key
+     * @return the value, or null if the key isn't in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = values.length - 1;
+        for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * method to store a value under a key, replacing any previous value
+     * @param key the key
+     * @param value the value, must not be null
+     */
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("LongKeyMap can't hold null values");
+        }
+        int mask = values.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // keep the table at most half full so probe runs stay short
+        if (++size > values.length >>> 1) {
+            rehash(values.length << 1);
+        }
+    }
+
+    /**
+     * method to remove a key
+     * @param key the key
+     * @return the value that was removed, or null if the key wasn't in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = values.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+            return null;
+        }
+        V removed = (V) values[slot];
+        // shift back any later entry of the probe run that would no longer be reachable
+        int gap = slot;
+        for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = slot(keys[i], mask);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * method to remove every entry, shrinking the table if it is mostly empty space
+     */
+    public void clear() {
+        int capacity = values.length;
+        while (capacity > MIN_CAPACITY && size < capacity >>> 3) {
+            capacity >>>= 1;
+        }
+        if (capacity != values.length) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        } else {
+            Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * method to move every entry into a table of a new size
+     * @param capacity the new number of slots, a power of two
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * method to find the home slot of a key
+     * @param key the key
+     * @param mask the capacity minus one
+     * @return the slot index
+     */
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
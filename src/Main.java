@@ -1,29 +1,79 @@
 import javax.swing.*;
+import java.io.UncheckedIOException;
 
 public class Main {
+    // copies of the board the window holds on the heap at once
+    private static final int HEAP_COPIES = 3;
+
     public static void main(String[] args) {
-        boolean[][] board = new boolean[][] {
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false},
-                {false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false}
-        };
-        LifeUI ui = new LifeUI(board);
+        // board dimensions, thread count, engine and topology come from the command line as
+        // "width height threads engine topology rule", defaulting to the classic dead-edged grid size stepped by the
+        // packed engine on one thread
+        int width = LifeBoard.GRID_SIZE;
+        int height = LifeBoard.GRID_SIZE;
+        int threads = 1;
+        String engine = "packed";
+        Topology topology = Topology.DEAD;
+        Rule rule = Rule.CONWAY;
+        try {
+            if (args.length >= 1) {
+                width = Integer.parseInt(args[0]);
+                height = width;
+            }
+            if (args.length >= 2) {
+                height = Integer.parseInt(args[1]);
+            }
+            if (args.length >= 3) {
+                threads = Integer.parseInt(args[2]);
+            }
+            if (args.length >= 4) {
+                engine = args[3];
+            }
+            if (args.length >= 5) {
+                topology = Topology.parse(args[4]);
+            }
+            if (args.length >= 6) {
+                rule = Rule.parse(args[5]);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Usage: java Main [width] [height] [threads] [" + String.join("|", Engines.NAMES)
+                    + "|" + Engines.MAPPED_PREFIX + "file] [dead|torus|klein|mirror] [rule, such as B3/S23]");
+            System.exit(1);
+        }
+        if (width < 1 || height < 1) {
+            System.err.println("Board dimensions must be positive: " + width + "x" + height);
+            System.exit(1);
+        }
+        if (threads < 1) {
+            System.err.println("Thread count must be positive: " + threads);
+            System.exit(1);
+        }
+        // the window keeps copies of the board on the heap, the canvas's cells and the state reset returns to, and
+        // snapshots one more when the animation starts, so an off-heap board larger than the heap can't be shown
+        if (engine.equals("offheap") || engine.startsWith(Engines.MAPPED_PREFIX)) {
+            long bytes = (long) BoardSnapshot.wordsPerRow(width) * height * Long.BYTES;
+            long heap = Runtime.getRuntime().maxMemory();
+            if (bytes > (Integer.MAX_VALUE - 8L) * Long.BYTES) {
+                System.err.println("A " + width + "x" + height + " board is too large to show in a window. Run it "
+                        + "with HeadlessRunner");
+                System.exit(1);
+            }
+            if (bytes * HEAP_COPIES > heap) {
+                System.err.printf("A %dx%d board needs %d MB of heap for the window's copies of it, but only %d MB "
+                        + "is available. Run it with HeadlessRunner, or raise -Xmx%n", width, height,
+                        bytes * HEAP_COPIES >> 20, heap >> 20);
+                System.exit(1);
+            }
+        }
+        LifeEngine lifeEngine = null;
+        try {
+            lifeEngine = Engines.create(engine, width, height, threads, topology, rule);
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            // a bad name or size, or a board file that can't be mapped
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        LifeUI ui = new LifeUI(lifeEngine);
         int option;
         // while that executes when the user is prompted to view generations of life
         do {
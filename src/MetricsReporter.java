@@ -0,0 +1,123 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a line of LifeMetrics at a fixed period from a background thread, either as readable text or as CSV
+ * rows for a spreadsheet. Rates are worked out over the period since the last line.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class MetricsReporter {
+
+    // header of the CSV columns, in the order rows are written
+    static final String CSV_HEADER = "time_ms,generations,generations_per_s,step_mean_us,step_p99_us,step_max_us,"
+            + "population,births,deaths,render_mean_us,frames,dropped_frames";
+
+    // the metrics reported, where they go and whether as CSV
+    private final LifeMetrics metrics;
+    private final PrintStream out;
+    private final boolean csv;
+    // the thread the lines are printed from
+    private ScheduledExecutorService timer;
+    // generations and time at the last line, for the rate
+    private long lastGenerations;
+    private long lastNanos;
+    private long startNanos;
+
+    /**
+     * Constructor for a reporter printing readable text
+     * @param metrics the metrics to report
+     * @param out where to print
+     */
+    public MetricsReporter(LifeMetrics metrics, PrintStream out) {
+        this(metrics, out, false);
+    }
+
+    /**
+     * Constructor for a reporter printing text or CSV
+     * @param metrics the metrics to report
+     * @param out where to print
+     * @param csv true for CSV rows
+     */
+    public MetricsReporter(LifeMetrics metrics, PrintStream out, boolean csv) {
+        this.metrics = metrics;
+        this.out = out;
+        this.csv = csv;
+    }
+
+    /**
+     * method to make a reporter that writes CSV to a file, falling back to the console if it can't be created
+     * @param metrics the metrics to report
+     * @param file the file, replaced if it exists
+     * @return the reporter
+     */
+    public static MetricsReporter toCsv(LifeMetrics metrics, Path file) {
+        try {
+            return new MetricsReporter(metrics, new PrintStream(Files.newOutputStream(file), true), true);
+        } catch (IOException e) {
+            System.err.println("Can't write metrics to " + file + ", printing them instead: " + e.getMessage());
+            return new MetricsReporter(metrics, System.out, true);
+        }
+    }
+
+    /**
+     * method to start printing lines
+     * @param period the time between lines
+     * @param unit the unit of the period
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        stop();
+        startNanos = System.nanoTime();
+        lastNanos = startNanos;
+        lastGenerations = metrics.getGenerations();
+        if (csv) {
+            out.println(CSV_HEADER);
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    /**
+     * method to stop printing lines
+     */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    /**
+     * method to print one line
+     */
+    public synchronized void report() {
+        long now = System.nanoTime();
+        long generations = metrics.getGenerations();
+        double rate = (generations - lastGenerations) / Math.max(1e-9, (now - lastNanos) / 1e9);
+        lastGenerations = generations;
+        lastNanos = now;
+        if (csv) {
+            out.println(String.format(Locale.ROOT, "%d,%d,%.1f,%.1f,%.1f,%.1f,%d,%d,%d,%.1f,%d,%d",
+                    (now - startNanos) / 1_000_000, generations, rate, metrics.getStepMeanMicros(),
+                    metrics.getStepP99Micros(), metrics.getStepMaxMicros(), metrics.getPopulation(),
+                    metrics.getBirths(), metrics.getDeaths(), metrics.getRenderMeanMicros(), metrics.getFrames(),
+                    metrics.getDroppedFrames()));
+        } else {
+            out.println(String.format(Locale.ROOT, "gen %d (%.1f/s) step mean %.1f us p99 %.1f us max %.1f us | "
+                            + "population %d births %d deaths %d | render mean %.1f us, %d frames, %d dropped",
+                    generations, rate, metrics.getStepMeanMicros(), metrics.getStepP99Micros(),
+                    metrics.getStepMaxMicros(), metrics.getPopulation(), metrics.getBirths(), metrics.getDeaths(),
+                    metrics.getRenderMeanMicros(), metrics.getFrames(), metrics.getDroppedFrames()));
+        }
+    }
+}
@@ -0,0 +1,493 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A packed engine whose cells live outside the Java heap, for boards too large for the heap or whose garbage
+ * collection would get in the way of the animation. Rows are laid out exactly as in BitPackedEngine, column c
+ * at bit c + 1 of a row of long words, in direct buffers or in a memory mapped file. Each buffer is split into
+ * segments of at most a gigabyte, since a single buffer can't be indexed past two gigabytes, and a row never
+ * straddles two segments.
+ * <p>
+ * Stepping rolls a window of three rows down the board on the heap: each row is copied in once, its halo bits
+ * are filled in there according to the topology, and the same kernel as BitPackedEngine computes the next
+ * generation of the middle row, which is copied out to the other buffer. The window and the output row are
+ * allocated once, and the two off-heap buffers are swapped each generation, so stepping allocates nothing.
+ * The halo rows are made up in the window as well, so they take no off-heap space.
+ * <p>
+ * Snapshots and toArray copy the board onto the heap, so they are only for boards that fit there.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class OffHeapEngine implements LifeEngine {
+
+    // most bytes in one segment of a buffer
+    public static final long SEGMENT_BYTES = 1L << 30;
+
+    // dimensions of the board in cells
+    private final int width;
+    private final int height;
+    // number of long words in each packed row, including the halo bits
+    private final int words;
+    // rows held by each segment
+    private final int rowsPerSegment;
+    // the segments of the current generation and of the buffer the next generation is written into
+    private LongBuffer[] cells;
+    private LongBuffer[] next;
+    // per-word masks that keep the halo bits of the output rows cleared
+    private final long[] mask;
+    // the three rows around the row being stepped, one after another, and the row it steps to
+    private final long[] window;
+    private final long[] row;
+    // what lies beyond the edges of the board
+    private final Topology topology;
+    // the birth and survival counts the generations are computed with
+    private final Rule rule;
+    // tiles changed since the renderer last cleared them, lined up with the packed words
+    private final ChangeSet changes;
+    // number of generations stepped since the last load
+    private long generation;
+    // Zobrist-style hash of the cells, keyed the same as BitPackedEngine's
+    private long hash;
+    // live cells per tile, births and deaths, updated word by word as they change
+    private final BoardStats stats;
+
+    /**
+     * Constructor for a board in direct buffers
+     * @param width the number of columns
+     * @param height the number of rows
+     */
+    public OffHeapEngine(int width, int height) {
+        this(width, height, Topology.DEAD, Rule.CONWAY);
+    }
+
+    /**
+     * Constructor for a board in direct buffers with an edge behavior and rule
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param topology what lies beyond the edges of the board
+     * @param rule the rule generations are computed with
+     */
+    public OffHeapEngine(int width, int height, Topology topology, Rule rule) {
+        this(width, height, topology, rule, null);
+    }
+
+    /**
+     * Constructor for a board in a memory mapped file, so it can be larger than memory. The file is working space
+     * for both buffers rather than a save format, and is replaced if it exists
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param topology what lies beyond the edges of the board
+     * @param rule the rule generations are computed with
+     * @param file the file to map, or null for direct buffers
+     */
+    public OffHeapEngine(int width, int height, Topology topology, Rule rule, Path file) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Board dimensions must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.topology = topology;
+        this.rule = rule;
+        this.words = (width + 2 + 63) >>> 6;
+        this.rowsPerSegment = (int) Math.min(height, SEGMENT_BYTES / ((long) words * Long.BYTES));
+        this.mask = new long[words];
+        for (int w = 0; w < words; w++) {
+            // number of bits of this word that hold the left halo or a cell
+            int bits = Math.min(64, Math.max(0, width + 1 - (w << 6)));
+            mask[w] = bits == 64 ? -1L : (1L << bits) - 1;
+        }
+        mask[0] &= ~1L;
+        this.window = new long[3 * words];
+        this.row = new long[words];
+        this.changes = new ChangeSet(width, height, 1);
+        this.stats = new BoardStats(width, height, 1);
+        if (file == null) {
+            this.cells = allocate();
+            this.next = allocate();
+        } else {
+            LongBuffer[][] buffers = map(file);
+            this.cells = buffers[0];
+            this.next = buffers[1];
+        }
+    }
+
+    /**
+     * method to allocate one buffer's segments as direct buffers
+     * @return the segments
+     */
+    private LongBuffer[] allocate() {
+        LongBuffer[] segments = new LongBuffer[(height + rowsPerSegment - 1) / rowsPerSegment];
+        for (int s = 0; s < segments.length; s++) {
+            int rows = Math.min(rowsPerSegment, height - s * rowsPerSegment);
+            segments[s] = ByteBuffer.allocateDirect(rows * words * Long.BYTES).order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        }
+        return segments;
+    }
+
+    /**
+     * method to map both buffers' segments from a file, one buffer after the other
+     * @param file the file
+     * @return the segments of the two buffers
+     */
+    private LongBuffer[][] map(Path file) {
+        int count = (height + rowsPerSegment - 1) / rowsPerSegment;
+        LongBuffer[][] buffers = new LongBuffer[2][count];
+        long bytes = (long) height * words * Long.BYTES;
+        // the mappings stay valid once the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int b = 0; b < 2; b++) {
+                for (int s = 0; s < count; s++) {
+                    long rows = Math.min(rowsPerSegment, height - (long) s * rowsPerSegment);
+                    long position = b * bytes + (long) s * rowsPerSegment * words * Long.BYTES;
+                    buffers[b][s] = channel.map(FileChannel.MapMode.READ_WRITE, position, rows * words * Long.BYTES)
+                            .order(ByteOrder.nativeOrder()).asLongBuffer();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't map board file " + file, e);
+        }
+        return buffers;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * getter method for the edge behavior of the board
+     * @return the topology
+     */
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /**
+     * getter method for the off-heap bytes held by both buffers
+     * @return the bytes
+     */
+    public long getOffHeapBytes() {
+        return 2L * height * words * Long.BYTES;
+    }
+
+    /**
+     * method to find the segment holding a row
+     * @param buffer the buffer
+     * @param r the row
+     * @return the segment
+     */
+    private LongBuffer segment(LongBuffer[] buffer, int r) {
+        return buffer[r / rowsPerSegment];
+    }
+
+    /**
+     * method to find where a row starts within its segment
+     * @param r the row
+     * @return the index of its first word
+     */
+    private int offset(int r) {
+        return (r % rowsPerSegment) * words;
+    }
+
+    @Override
+    public boolean get(int r, int col) {
+        if (r < 0 || r >= height || col < 0 || col >= width) {
+            return false;
+        }
+        return (segment(cells, r).get(offset(r) + ((col + 1) >>> 6)) & (1L << (col + 1))) != 0;
+    }
+
+    @Override
+    public void set(int r, int col, boolean alive) {
+        if (r < 0 || r >= height || col < 0 || col >= width) {
+            return;
+        }
+        changes.markCell(r, col);
+        LongBuffer segment = segment(cells, r);
+        int w = (col + 1) >>> 6;
+        int index = offset(r) + w;
+        long was = segment.get(index);
+        long now = alive ? was | (1L << (col + 1)) : was & ~(1L << (col + 1));
+        segment.put(index, now);
+        hash ^= CycleDetector.hashWord(key(r, w), was) ^ CycleDetector.hashWord(key(r, w), now);
+        stats.edit(r / ChangeSet.TILE_SIZE, w, was, now);
+    }
+
+    /**
+     * method to find the hash key position of a word, the same as its index in BitPackedEngine
+     * @param r the row
+     * @param w the word within the row
+     * @return the position
+     */
+    private long key(int r, int w) {
+        return (long) (r + 1) * words + w;
+    }
+
+    /**
+     * method to clear every word of a buffer
+     * @param buffer the buffer
+     */
+    private void clear(LongBuffer[] buffer) {
+        long[] zeros = new long[words];
+        for (int r = 0; r < height; r++) {
+            segment(buffer, r).put(offset(r), zeros, 0, words);
+        }
+    }
+
+    /**
+     * method to hash and count the whole board from scratch, after it has been loaded
+     */
+    private void rehash() {
+        hash = 0;
+        stats.clear();
+        for (int r = 0; r < height; r++) {
+            segment(cells, r).get(offset(r), row, 0, words);
+            for (int w = 0; w < words; w++) {
+                hash ^= CycleDetector.hashWord(key(r, w), row[w]);
+                stats.add(r / ChangeSet.TILE_SIZE, w, row[w]);
+            }
+        }
+    }
+
+    @Override
+    public void load(boolean[][] state) {
+        clear(cells);
+        for (int r = 0; r < Math.min(height, state.length); r++) {
+            segment(cells, r).get(offset(r), row, 0, words);
+            for (int col = 0; col < Math.min(width, state[r].length); col++) {
+                if (state[r][col]) {
+                    row[(col + 1) >>> 6] |= 1L << (col + 1);
+                }
+            }
+            segment(cells, r).put(offset(r), row, 0, words);
+        }
+        rehash();
+        generation = 0;
+        changes.markAll();
+    }
+
+    @Override
+    public void load(BoardSnapshot snapshot) {
+        clear(cells);
+        int in = snapshot.getWordsPerRow();
+        for (int r = 0; r < Math.min(height, snapshot.getHeight()); r++) {
+            Arrays.fill(row, 0L);
+            for (int w = 0; w < Math.min(in, words); w++) {
+                // shift a whole word right by the halo column, carrying its top bit into the next word
+                long word = snapshot.word(r, w);
+                row[w] |= word << 1;
+                if (w + 1 < words) {
+                    row[w + 1] |= word >>> 63;
+                }
+            }
+            for (int w = 0; w < words; w++) {
+                row[w] &= mask[w];
+            }
+            segment(cells, r).put(offset(r), row, 0, words);
+        }
+        rehash();
+        generation = snapshot.getGeneration();
+        changes.markAll();
+    }
+
+    @Override
+    public boolean[][] toArray() {
+        boolean[][] state = new boolean[height][width];
+        for (int r = 0; r < height; r++) {
+            segment(cells, r).get(offset(r), row, 0, words);
+            for (int col = 0; col < width; col++) {
+                state[r][col] = (row[(col + 1) >>> 6] & (1L << (col + 1))) != 0;
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public long word(int r, int w) {
+        LongBuffer segment = segment(cells, r);
+        int start = offset(r);
+        // drop the left halo bit, pulling the first bit of the next word into the top of this one
+        long high = w + 1 < words ? segment.get(start + w + 1) << 63 : 0;
+        long bits = (segment.get(start + w) >>> 1) | high;
+        return (width & 63) != 0 && w == (width >>> 6) ? bits & ((1L << width) - 1) : bits;
+    }
+
+    @Override
+    public BoardSnapshot snapshot() {
+        int out = BoardSnapshot.wordsPerRow(width);
+        if ((long) height * out > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Board is too large to snapshot onto the heap: " + width + "x" + height);
+        }
+        long[] rows = new long[height * out];
+        for (int r = 0; r < height; r++) {
+            segment(cells, r).get(offset(r), row, 0, words);
+            for (int w = 0; w < out; w++) {
+                // drop the left halo bit, pulling the first bit of the next word into the top of this one
+                long high = w + 1 < words ? row[w + 1] << 63 : 0;
+                rows[r * out + w] = (row[w] >>> 1) | high;
+            }
+            if ((width & 63) != 0) {
+                // the right halo bit lands just past the last column
+                rows[r * out + out - 1] &= (1L << width) - 1;
+            }
+        }
+        return new BoardSnapshot(width, height, generation, rows);
+    }
+
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public BoardStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void step() {
+        // slots of the window holding the rows above, at and below the row being stepped
+        int up = 0;
+        int mid = words;
+        int down = 2 * words;
+        stats.beginGeneration();
+        readRow(-1, up);
+        readRow(0, mid);
+        readRow(1, down);
+        for (int r = 0; r < height; r++) {
+            BitPackedEngine.stepRow(window, up, mid, down, row, 0, words, mask, rule);
+            int tileRow = r / ChangeSet.TILE_SIZE;
+            for (int w = 0; w < words; w++) {
+                // the halo bits in the window are filled in, so compare only the cells
+                long was = window[mid + w] & mask[w];
+                if (row[w] != was) {
+                    changes.markTile(tileRow, w);
+                    stats.record(tileRow, w, was, row[w]);
+                    hash ^= CycleDetector.hashWord(key(r, w), was) ^ CycleDetector.hashWord(key(r, w), row[w]);
+                }
+            }
+            segment(next, r).put(offset(r), row, 0, words);
+            // roll the window down a row, reusing the slot of the row that dropped out
+            int free = up;
+            up = mid;
+            mid = down;
+            down = free;
+            if (r + 1 < height) {
+                readRow(r + 2, down);
+            }
+        }
+        LongBuffer[] temp = cells;
+        cells = next;
+        next = temp;
+        generation++;
+    }
+
+    /**
+     * method to copy a row of the current generation into the window with its halo bits filled in, making up
+     * the halo rows above and below the board from the topology
+     * @param r the row, from -1 to height
+     * @param slot where the row starts in the window
+     */
+    private void readRow(int r, int slot) {
+        if (r >= 0 && r < height) {
+            segment(cells, r).get(offset(r), window, slot, words);
+            fillHaloColumns(slot);
+            return;
+        }
+        boolean above = r < 0;
+        switch (topology) {
+            case TORUS:
+                readRow(above ? height - 1 : 0, slot);
+                break;
+            case MIRROR:
+                readRow(above ? 0 : height - 1, slot);
+                break;
+            case KLEIN:
+                readRow(above ? height - 1 : 0, slot);
+                reverse(slot);
+                break;
+            default:
+                Arrays.fill(window, slot, slot + words, 0L);
+                break;
+        }
+    }
+
+    /**
+     * method to fill the halo columns of a row in the window from the cells they stand in for
+     * @param slot where the row starts in the window
+     */
+    private void fillHaloColumns(int slot) {
+        if (topology == Topology.DEAD) {
+            // rows are stored with their halo bits cleared
+            return;
+        }
+        boolean mirror = topology == Topology.MIRROR;
+        setBit(slot, 0, bitAt(slot, mirror ? 1 : width));
+        setBit(slot, width + 1, bitAt(slot, mirror ? width : 1));
+    }
+
+    /**
+     * method to flip a row of the window left to right, halo bits included
+     * @param slot where the row starts in the window
+     */
+    private void reverse(int slot) {
+        for (int low = 0, high = width + 1; low < high; low++, high--) {
+            boolean bit = bitAt(slot, low);
+            setBit(slot, low, bitAt(slot, high));
+            setBit(slot, high, bit);
+        }
+    }
+
+    /**
+     * method to read one bit of a row of the window, halo bits included
+     * @param slot where the row starts in the window
+     * @param bit the bit index, column + 1
+     * @return true if the bit is set
+     */
+    private boolean bitAt(int slot, int bit) {
+        return (window[slot + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * method to write one bit of a row of the window, halo bits included
+     * @param slot where the row starts in the window
+     * @param bit the bit index, column + 1
+     * @param value the value of the bit
+     */
+    private void setBit(int slot, int bit, boolean value) {
+        if (value) {
+            window[slot + (bit >>> 6)] |= 1L << bit;
+        } else {
+            window[slot + (bit >>> 6)] &= ~(1L << bit);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A bit-packed engine that splits the board into row bands and steps them on a ForkJoinPool. Every band reads
+ * the current buffer and writes only its own rows of the back buffer, and the buffers are swapped once all
+ * bands have joined, so the result is bit-identical to stepping on a single thread.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class ParallelEngine extends BitPackedEngine {
+
+
+    // number of worker threads and the pool they run in
+    private final int threads;
+    private final ForkJoinPool pool;
+    // one reusable task per band, plus the task that runs them all and waits for them
+    private final Band[] bands;
+    private final Generation generationTask = new Generation();
+
+    /**
+     * Constructor for a parallel engine that uses every available core
+     * @param width the number of columns
+     * @param height the number of rows
+     */
+    public ParallelEngine(int width, int height) {
+        this(width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for a parallel engine with a fixed number of threads
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param threads the number of worker threads
+     */
+    public ParallelEngine(int width, int height, int threads) {
+        this(width, height, threads, Topology.DEAD);
+    }
+
+    /**
+     * Constructor for a parallel engine with a fixed number of threads and edge behavior
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param threads the number of worker threads
+     * @param topology what lies beyond the edges of the board
+     */
+    public ParallelEngine(int width, int height, int threads, Topology topology) {
+        this(width, height, threads, topology, Rule.CONWAY);
+    }
+
+    /**
+     * Constructor for a parallel engine with a fixed number of threads, edge behavior and rule
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param threads the number of worker threads
+     * @param topology what lies beyond the edges of the board
+     * @param rule the rule generations are computed with
+     */
+    public ParallelEngine(int width, int height, int threads, Topology topology, Rule rule) {
+        super(width, height, topology, rule);
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+        // a few bands per thread so a slow band doesn't leave the other workers idle, each band a whole number
+        // of change set tiles tall so no two bands mark the same tile row
+        int tileRows = (height + ChangeSet.TILE_SIZE - 1) / ChangeSet.TILE_SIZE;
+        int count = Math.max(1, Math.min(threads * 4, tileRows));
+        this.bands = new Band[count];
+        for (int i = 0; i < count; i++) {
+            int fromRow = (int) ((long) tileRows * i / count) * ChangeSet.TILE_SIZE;
+            int toRow = Math.min(height, (int) ((long) tileRows * (i + 1) / count) * ChangeSet.TILE_SIZE);
+            bands[i] = new Band(fromRow, toRow);
+        }
+    }
+
+    /**
+     * getter method for the number of worker threads
+     * @return the thread count
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public void step() {
+        if (bands.length == 1) {
+            super.step();
+            return;
+        }
+        fillHalo();
+        stats.beginGeneration();
+        generationTask.reinitialize();
+        // invoke returns only after every band has finished, which is the barrier between generations
+        pool.invoke(generationTask);
+        for (Band band : bands) {
+            hash ^= band.delta;
+        }
+        swap();
+    }
+
+    /**
+     * method to stop the worker threads once the engine is no longer needed
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * task that forks every band of one generation and joins them
+     */
+    @SuppressWarnings("serial")
+    private class Generation extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (Band band : bands) {
+                band.reinitialize();
+            }
+            invokeAll(bands);
+        }
+    }
+
+    /**
+     * task that steps one band of rows
+     */
+    @SuppressWarnings("serial")
+    private class Band extends RecursiveAction {
+        // first row of the band and one past its last row
+        private final int fromRow;
+        private final int toRow;
+        // the change the band made to the hash, combined once every band is done
+        private long delta;
+
+        Band(int fromRow, int toRow) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            delta = stepRows(fromRow, toRow);
+        }
+    }
+}
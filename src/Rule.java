@@ -0,0 +1,179 @@
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A Life-like rule in B/S notation: the neighbor counts that bring a dead cell to life and the counts that
+ * keep a live cell alive, such as B3/S23 for Conway's Game of Life, B36/S23 for HighLife, B3678/S34678 for Day
+ * and Night or B2/S for Seeds. The rule is compiled into a lookup table indexed by neighbor count and state for
+ * cell at a time code, and into per-count bit masks that the packed engines apply to a whole word of
+ * neighbor counts at once. Conway's rule keeps the hand-written fast path in the packed kernel.
+ * <p>
+ * Rules are parsed from "B36/S23", "b36/s23", "B36S23" or the older survival first "23/36" form. Larger than
+ * Life and multi-state Generations rules are not supported.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public final class Rule {
+
+    // Conway's Game of Life
+    public static final Rule CONWAY = new Rule(1 << 3, (1 << 2) | (1 << 3));
+
+    // the B/S form, optionally with a separator, and the survival first form
+    private static final Pattern BS = Pattern.compile("B([0-8]*)/?S([0-8]*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SB = Pattern.compile("([0-8]*)/([0-8]*)");
+
+    // bit n is set when n neighbors bring a dead cell to life, or keep a live cell alive
+    private final int birth;
+    private final int survival;
+    // next state by neighbor count * 2 + current state
+    private final boolean[] table = new boolean[18];
+    // for each count that matters: the count's bit planes as all ones or all zeros, then whether it gives
+    // birth and whether it gives survival, again as all ones or all zeros
+    private final long[] planes;
+    // true for B3/S23, which the packed kernel has a faster formula for
+    private final boolean conway;
+
+    /**
+     * Constructor for a rule from its birth and survival counts
+     * @param birth bit n set when n neighbors bring a dead cell to life
+     * @param survival bit n set when n neighbors keep a live cell alive
+     */
+    private Rule(int birth, int survival) {
+        this.birth = birth;
+        this.survival = survival;
+        this.conway = birth == 1 << 3 && survival == ((1 << 2) | (1 << 3));
+        int counts = Integer.bitCount(birth | survival);
+        this.planes = new long[counts * 6];
+        int i = 0;
+        for (int n = 0; n <= 8; n++) {
+            table[n * 2] = (birth & (1 << n)) != 0;
+            table[n * 2 + 1] = (survival & (1 << n)) != 0;
+            if (((birth | survival) & (1 << n)) != 0) {
+                for (int bit = 0; bit < 4; bit++) {
+                    planes[i++] = (n & (1 << bit)) != 0 ? -1L : 0L;
+                }
+                planes[i++] = table[n * 2] ? -1L : 0L;
+                planes[i++] = table[n * 2 + 1] ? -1L : 0L;
+            }
+        }
+    }
+
+    /**
+     * method to parse a rule
+     * @param text the rule, such as "B36/S23"
+     * @return the rule
+     * @throws IllegalArgumentException if the text isn't a rule this class supports
+     */
+    public static Rule parse(String text) {
+        String trimmed = text.trim();
+        Matcher bs = BS.matcher(trimmed);
+        if (bs.matches()) {
+            return of(counts(bs.group(1)), counts(bs.group(2)));
+        }
+        Matcher sb = SB.matcher(trimmed);
+        if (sb.matches()) {
+            return of(counts(sb.group(2)), counts(sb.group(1)));
+        }
+        throw new IllegalArgumentException("Not a B/S rule: " + text);
+    }
+
+    /**
+     * method to make a rule from its birth and survival counts
+     * @param birth bit n set when n neighbors bring a dead cell to life
+     * @param survival bit n set when n neighbors keep a live cell alive
+     * @return the rule
+     */
+    public static Rule of(int birth, int survival) {
+        if ((birth & ~0x1FF) != 0 || (survival & ~0x1FF) != 0) {
+            throw new IllegalArgumentException("Neighbor counts only go up to 8");
+        }
+        Rule rule = new Rule(birth, survival);
+        return rule.conway ? CONWAY : rule;
+    }
+
+    /**
+     * method to turn a string of digits into a set of counts
+     * @param digits the digits
+     * @return bit n set for each digit n
+     */
+    private static int counts(String digits) {
+        int set = 0;
+        for (char c : digits.toCharArray()) {
+            set |= 1 << (c - '0');
+        }
+        return set;
+    }
+
+    /**
+     * method to apply the rule to one cell
+     * @param alive whether the cell is alive now
+     * @param neighbors the number of live neighbors
+     * @return whether the cell is alive in the next generation
+     */
+    public boolean next(boolean alive, int neighbors) {
+        return table[neighbors * 2 + (alive ? 1 : 0)];
+    }
+
+    /**
+     * method to apply the rule to 64 cells at once, given their neighbor counts as bit planes
+     * @param s0 bit 0 of each cell's neighbor count
+     * @param s1 bit 1 of each count
+     * @param s2 bit 2 of each count
+     * @param s3 bit 3 of each count
+     * @param m the cells themselves
+     * @return the cells in the next generation
+     */
+    long apply(long s0, long s1, long s2, long s3, long m) {
+        long result = 0;
+        for (int i = 0; i < planes.length; i += 6) {
+            // cells whose count is exactly this one
+            long match = ~((s0 ^ planes[i]) | (s1 ^ planes[i + 1]) | (s2 ^ planes[i + 2]) | (s3 ^ planes[i + 3]));
+            result |= match & ((~m & planes[i + 4]) | (m & planes[i + 5]));
+        }
+        return result;
+    }
+
+    /**
+     * getter method for whether this is Conway's B3/S23
+     * @return true for Conway's rule
+     */
+    public boolean isConway() {
+        return conway;
+    }
+
+    /**
+     * getter method for whether dead cells with no live neighbors come to life, which turns every empty region
+     * alive and so can't run on the engines that skip empty space
+     * @return true if 0 is a birth count
+     */
+    public boolean birthOnZero() {
+        return (birth & 1) != 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Rule && ((Rule) other).birth == birth && ((Rule) other).survival == survival;
+    }
+
+    @Override
+    public int hashCode() {
+        return birth * 512 + survival;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("B");
+        for (int n = 0; n <= 8; n++) {
+            if ((birth & (1 << n)) != 0) {
+                text.append(n);
+            }
+        }
+        text.append("/S");
+        for (int n = 0; n <= 8; n++) {
+            if ((survival & (1 << n)) != 0) {
+                text.append(n);
+            }
+        }
+        return text.toString();
+    }
+}
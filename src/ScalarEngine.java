@@ -0,0 +1,317 @@
+import java.util.Arrays;
+
+/**
+ * A cell at a time engine for when the packed engines aren't wanted, such as for checking them or for rules and
+ * experiments that are easier to follow one cell at a time. Cells are a byte each in a flat array with a halo
+ * row and column all the way round, like BitPackedEngine's, so nothing is bounds checked.
+ * <p>
+ * Rather than reading all eight neighbors of every cell, as LifeBoard.checkNeighbors does, a generation keeps
+ * a running sum of each column of the three rows around the current row. Moving down a row adds the row coming
+ * in and takes away the row going out, and the sum of the 3x3 block around a cell is then the three column sums
+ * around it, rolled along the row. Each cell is read about three times a generation instead of nine, and the
+ * block sum and the cell itself index straight into a table of the rule.
+ * <p>
+ * The cells are also kept packed 64 to a word, laid out like BitPackedEngine's rows, only so the hash can be
+ * updated a word at a time as cells change; the packed rows are never stepped.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class ScalarEngine implements LifeEngine {
+
+    // dimensions of the board in cells
+    private final int width;
+    private final int height;
+    // cells per row including the halo columns
+    private final int stride;
+    // the current generation and the buffer the next generation is written into, 1 for alive
+    private byte[] cells;
+    private byte[] next;
+    // sums of each column of the three rows around the row being stepped
+    private final int[] sums;
+    // the cells packed 64 to a word, column c at bit c + 1, for the hash
+    private final int words;
+    private final long[] packed;
+    // Zobrist-style hash of the cells, keyed the same as BitPackedEngine's
+    private long hash;
+    // live cells per tile, births and deaths, updated a packed word at a time as they change
+    private final BoardStats stats;
+    // next state indexed by the sum of the 3x3 block times two plus the state of the cell
+    private final byte[] table = new byte[20];
+    // what lies beyond the edges of the board
+    private final Topology topology;
+    // the birth and survival counts the generations are computed with
+    private final Rule rule;
+    // tiles changed since the renderer last cleared them, lined up with the halo column
+    private final ChangeSet changes;
+    // number of generations stepped since the last load
+    private long generation;
+
+    /**
+     * Constructor for an empty board
+     * @param width the number of columns
+     * @param height the number of rows
+     */
+    public ScalarEngine(int width, int height) {
+        this(width, height, Topology.DEAD, Rule.CONWAY);
+    }
+
+    /**
+     * Constructor for an empty board with an edge behavior and rule
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param topology what lies beyond the edges of the board
+     * @param rule the rule generations are computed with
+     */
+    public ScalarEngine(int width, int height, Topology topology, Rule rule) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Board dimensions must be positive: " + width + "x" + height);
+        }
+        if ((long) (width + 2) * (height + 2) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board is too large for a byte per cell: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.stride = width + 2;
+        this.topology = topology;
+        this.rule = rule;
+        this.cells = new byte[(height + 2) * stride];
+        this.next = new byte[(height + 2) * stride];
+        this.sums = new int[stride];
+        this.words = (width + 2 + 63) >>> 6;
+        this.packed = new long[height * words];
+        for (int total = 0; total <= 9; total++) {
+            for (int self = 0; self <= 1; self++) {
+                int neighbors = total - self;
+                if (neighbors >= 0 && neighbors <= 8 && rule.next(self == 1, neighbors)) {
+                    table[(total << 1) | self] = 1;
+                }
+            }
+        }
+        this.changes = new ChangeSet(width, height, 1);
+        this.stats = new BoardStats(width, height, 1);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * getter method for the edge behavior of the board
+     * @return the topology
+     */
+    public Topology getTopology() {
+        return topology;
+    }
+
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public BoardStats getStats() {
+        return stats;
+    }
+
+    /**
+     * method to find the hash key position of a packed word, the same as its index in BitPackedEngine
+     * @param row the row
+     * @param w the word within the row
+     * @return the position
+     */
+    private long key(int row, int w) {
+        return (long) (row + 1) * words + w;
+    }
+
+    @Override
+    public boolean get(int row, int col) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return false;
+        }
+        return cells[(row + 1) * stride + col + 1] != 0;
+    }
+
+    @Override
+    public long word(int row, int word) {
+        int base = row * words;
+        long high = word + 1 < words ? packed[base + word + 1] << 63 : 0;
+        long bits = (packed[base + word] >>> 1) | high;
+        return (width & 63) != 0 && word == (width >>> 6) ? bits & ((1L << width) - 1) : bits;
+    }
+
+    @Override
+    public void set(int row, int col, boolean alive) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return;
+        }
+        changes.markCell(row, col);
+        cells[(row + 1) * stride + col + 1] = (byte) (alive ? 1 : 0);
+        int w = (col + 1) >>> 6;
+        long was = packed[row * words + w];
+        long now = alive ? was | (1L << (col + 1)) : was & ~(1L << (col + 1));
+        packed[row * words + w] = now;
+        hash ^= CycleDetector.hashWord(key(row, w), was) ^ CycleDetector.hashWord(key(row, w), now);
+        stats.edit(row / ChangeSet.TILE_SIZE, w, was, now);
+    }
+
+    @Override
+    public void load(boolean[][] state) {
+        Arrays.fill(cells, (byte) 0);
+        Arrays.fill(packed, 0L);
+        for (int row = 0; row < Math.min(height, state.length); row++) {
+            for (int col = 0; col < Math.min(width, state[row].length); col++) {
+                if (state[row][col]) {
+                    cells[(row + 1) * stride + col + 1] = 1;
+                    packed[row * words + ((col + 1) >>> 6)] |= 1L << (col + 1);
+                }
+            }
+        }
+        hash = 0;
+        stats.clear();
+        for (int row = 0; row < height; row++) {
+            for (int w = 0; w < words; w++) {
+                hash ^= CycleDetector.hashWord(key(row, w), packed[row * words + w]);
+                stats.add(row / ChangeSet.TILE_SIZE, w, packed[row * words + w]);
+            }
+        }
+        generation = 0;
+        changes.markAll();
+    }
+
+    @Override
+    public void load(BoardSnapshot snapshot) {
+        LifeEngine.super.load(snapshot);
+        generation = snapshot.getGeneration();
+    }
+
+    @Override
+    public boolean[][] toArray() {
+        boolean[][] state = new boolean[height][width];
+        for (int row = 0; row < height; row++) {
+            int base = (row + 1) * stride + 1;
+            for (int col = 0; col < width; col++) {
+                state[row][col] = cells[base + col] != 0;
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public void step() {
+        fillHalo();
+        stats.beginGeneration();
+        // column sums of the halo row above and the first two rows
+        for (int c = 0; c < stride; c++) {
+            sums[c] = cells[c] + cells[stride + c] + cells[2 * stride + c];
+        }
+        for (int row = 0; row < height; row++) {
+            int mid = (row + 1) * stride;
+            if (row > 0) {
+                // move the sums down a row, the halo row below the board comes in last
+                int out = (row - 1) * stride;
+                int in = (row + 2) * stride;
+                for (int c = 0; c < stride; c++) {
+                    sums[c] += cells[in + c] - cells[out + c];
+                }
+            }
+            int tileRow = row / ChangeSet.TILE_SIZE;
+            int base = row * words;
+            // the packed word changes are being made in, and what it held before the first of them
+            int open = -1;
+            long was = 0;
+            int left = sums[0];
+            int centre = sums[1];
+            for (int c = 1; c <= width; c++) {
+                int right = sums[c + 1];
+                byte self = cells[mid + c];
+                byte state = table[((left + centre + right) << 1) | self];
+                next[mid + c] = state;
+                if (state != self) {
+                    // c is the cell's bit in the packed row, and its word is its tile since tiles are 64 wide
+                    int w = c >>> 6;
+                    if (w != open) {
+                        if (open >= 0) {
+                            hash ^= CycleDetector.hashWord(key(row, open), was)
+                                    ^ CycleDetector.hashWord(key(row, open), packed[base + open]);
+                            stats.record(tileRow, open, was, packed[base + open]);
+                        }
+                        open = w;
+                        was = packed[base + w];
+                        changes.markTile(tileRow, w);
+                    }
+                    packed[base + w] ^= 1L << c;
+                }
+                left = centre;
+                centre = right;
+            }
+            if (open >= 0) {
+                hash ^= CycleDetector.hashWord(key(row, open), was)
+                        ^ CycleDetector.hashWord(key(row, open), packed[base + open]);
+                stats.record(tileRow, open, was, packed[base + open]);
+            }
+        }
+        byte[] temp = cells;
+        cells = next;
+        next = temp;
+        generation++;
+    }
+
+    /**
+     * method to fill the halo rows and columns of the current buffer from the cells they stand in for
+     */
+    private void fillHalo() {
+        if (topology == Topology.DEAD) {
+            // the halo is never written, so it stays dead
+            return;
+        }
+        // halo columns first, so the halo rows copied below pick up the corners
+        boolean mirror = topology == Topology.MIRROR;
+        for (int row = 1; row <= height; row++) {
+            int base = row * stride;
+            cells[base] = cells[base + (mirror ? 1 : width)];
+            cells[base + width + 1] = cells[base + (mirror ? width : 1)];
+        }
+        int first = stride;
+        int last = height * stride;
+        int below = (height + 1) * stride;
+        switch (topology) {
+            case TORUS:
+                System.arraycopy(cells, last, cells, 0, stride);
+                System.arraycopy(cells, first, cells, below, stride);
+                break;
+            case KLEIN:
+                for (int c = 0; c < stride; c++) {
+                    cells[stride - 1 - c] = cells[last + c];
+                    cells[below + stride - 1 - c] = cells[first + c];
+                }
+                break;
+            case MIRROR:
+                System.arraycopy(cells, first, cells, 0, stride);
+                System.arraycopy(cells, last, cells, below, stride);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * A bit-packed engine that only recomputes the parts of the board that can change. The board is split into
+ * tiles of one packed word by TILE_ROWS rows, and a tile is stepped only if it or one of its eight neighbors
+ * changed in the last generation. Every tile that is skipped already holds the same cells in both buffers,
+ * so the cost of a generation follows the activity on the board rather than its area. On wrapping topologies a
+ * change on an edge also wakes every tile on the opposite edge.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class SparseTileEngine extends BitPackedEngine {
+
+    // number of rows in a tile, each tile is one word (64 columns) wide
+    public static final int TILE_ROWS = 64;
+
+    // dimensions of the board in tiles
+    private final int tileRows;
+    private final int tileCols;
+    // tiles that changed in the last generation, and the same for the generation being computed
+    private int[] changed;
+    private int changedCount;
+    private int[] nextChanged;
+    // tiles to step this generation, deduplicated with a per-step stamp
+    private final int[] active;
+    private int activeCount;
+    private final int[] stamp;
+    private int epoch;
+
+    /**
+     * Constructor to allocate the buffers and tile lists for a board of the given size
+     * @param width the number of columns
+     * @param height the number of rows
+     */
+    public SparseTileEngine(int width, int height) {
+        this(width, height, Topology.DEAD);
+    }
+
+    /**
+     * Constructor to allocate the buffers and tile lists for a board of the given size and edge behavior
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param topology what lies beyond the edges of the board
+     */
+    public SparseTileEngine(int width, int height, Topology topology) {
+        this(width, height, topology, Rule.CONWAY);
+    }
+
+    /**
+     * Constructor to allocate the buffers and tile lists for a board of the given size, edge behavior and rule
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param topology what lies beyond the edges of the board
+     * @param rule the rule generations are computed with, which can't give birth on zero neighbors
+     */
+    public SparseTileEngine(int width, int height, Topology topology, Rule rule) {
+        super(width, height, topology, rule);
+        if (rule.birthOnZero()) {
+            // empty tiles would change without any neighbor changing, so none could ever be skipped
+            throw new IllegalArgumentException("The sparse engine can't run B0 rules: " + rule);
+        }
+        this.tileRows = (height + TILE_ROWS - 1) / TILE_ROWS;
+        this.tileCols = words;
+        int tiles = tileRows * tileCols;
+        this.changed = new int[tiles];
+        this.nextChanged = new int[tiles];
+        this.active = new int[tiles];
+        this.stamp = new int[tiles];
+        markAllChanged();
+    }
+
+    /**
+     * getter method for the number of tiles stepped in the last generation
+     * @return the active tile count
+     */
+    public int getActiveTileCount() {
+        return activeCount;
+    }
+
+    /**
+     * getter method for the total number of tiles on the board
+     * @return the tile count
+     */
+    public int getTileCount() {
+        return tileRows * tileCols;
+    }
+
+    @Override
+    public void set(int row, int col, boolean alive) {
+        if (get(row, col) == alive) {
+            return;
+        }
+        super.set(row, col, alive);
+        int tile = (row / TILE_ROWS) * tileCols + ((col + 1) >>> 6);
+        // the back buffer no longer matches this tile, so it has to be stepped even if it is already listed
+        if (changedCount < changed.length) {
+            changed[changedCount++] = tile;
+        } else {
+            markAllChanged();
+        }
+    }
+
+    @Override
+    public void load(boolean[][] state) {
+        super.load(state);
+        markAllChanged();
+    }
+
+    @Override
+    public void load(BoardSnapshot snapshot) {
+        super.load(snapshot);
+        markAllChanged();
+    }
+
+    @Override
+    public void step() {
+        // the tiles to step are the ones that changed and their neighbors
+        epoch++;
+        activeCount = 0;
+        // the tile column holding the last column of cells
+        int lastCol = width >>> 6;
+        boolean wakeTop = false;
+        boolean wakeBottom = false;
+        boolean wakeLeft = false;
+        boolean wakeRight = false;
+        for (int i = 0; i < changedCount; i++) {
+            int tileRow = changed[i] / tileCols;
+            int tileCol = changed[i] % tileCols;
+            for (int r = Math.max(0, tileRow - 1); r <= Math.min(tileRows - 1, tileRow + 1); r++) {
+                for (int c = Math.max(0, tileCol - 1); c <= Math.min(tileCols - 1, tileCol + 1); c++) {
+                    activate(r * tileCols + c);
+                }
+            }
+            wakeBottom |= tileRow == 0;
+            wakeTop |= tileRow == tileRows - 1;
+            wakeRight |= tileCol == 0;
+            wakeLeft |= tileCol == lastCol;
+        }
+        if (topology.wraps()) {
+            for (int c = 0; c < tileCols; c++) {
+                if (wakeTop) {
+                    activate(c);
+                }
+                if (wakeBottom) {
+                    activate((tileRows - 1) * tileCols + c);
+                }
+            }
+            for (int r = 0; r < tileRows; r++) {
+                if (wakeLeft) {
+                    activate(r * tileCols);
+                }
+                if (wakeRight) {
+                    activate(r * tileCols + lastCol);
+                }
+            }
+        }
+        fillHalo();
+        stats.beginGeneration();
+        int count = 0;
+        for (int i = 0; i < activeCount; i++) {
+            if (stepTile(active[i])) {
+                nextChanged[count++] = active[i];
+                changes.markTile(active[i] / tileCols, active[i] % tileCols);
+            }
+        }
+        int[] temp = changed;
+        changed = nextChanged;
+        nextChanged = temp;
+        changedCount = count;
+        swap();
+    }
+
+    /**
+     * method to add a tile to the tiles stepped this generation, once
+     * @param tile the index of the tile
+     */
+    private void activate(int tile) {
+        if (stamp[tile] != epoch) {
+            stamp[tile] = epoch;
+            active[activeCount++] = tile;
+        }
+    }
+
+    /**
+     * method to step one tile into the back buffer
+     * @param tile the index of the tile
+     * @return true if any cell of the tile changed
+     */
+    private boolean stepTile(int tile) {
+        int word = tile % tileCols;
+        int fromRow = (tile / tileCols) * TILE_ROWS;
+        int toRow = Math.min(height, fromRow + TILE_ROWS);
+        long diff = 0;
+        for (int row = fromRow; row < toRow; row++) {
+            int mid = (row + 1) * words;
+            stepWords(cells, mid - words, mid, mid + words, next, mid, word, word + 1, words, mask, rule);
+            // the halo bits of the current buffer are filled in, so compare only the cells
+            long was = cells[mid + word] & mask[word];
+            if (next[mid + word] != was) {
+                diff = 1;
+                stats.record(row / ChangeSet.TILE_SIZE, word, was, next[mid + word]);
+                hash ^= CycleDetector.hashWord(mid + word, was) ^ CycleDetector.hashWord(mid + word, next[mid + word]);
+            }
+        }
+        return diff != 0;
+    }
+
+    /**
+     * method to list every tile as changed, so the next generation steps the whole board
+     */
+    private void markAllChanged() {
+        changedCount = changed.length;
+        for (int i = 0; i < changedCount; i++) {
+            changed[i] = i;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.Random;
+
+/**
+ * Command line report comparing the single-threaded engine with the parallel engine as the board grows.
+ * Usage: java SpeedupReport [threads] [generations] [size...]
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public class SpeedupReport {
+
+    /**
+     * runs both engines on the same random soup for each board size and prints the speedup
+     * @param args thread count, generations per run and the board sizes to try
+     */
+    public static void main(String[] args) {
+        int threads = args.length >= 1 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int generations = args.length >= 2 ? Integer.parseInt(args[1]) : 100;
+        int[] sizes = {19, 256, 1024, 4096};
+        if (args.length >= 3) {
+            sizes = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                sizes[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.printf("%10s %14s %14s %8s%n", "size", "seq gen/s", threads + "-thread gen/s", "speedup");
+        for (int size : sizes) {
+            boolean[][] soup = randomSoup(size, new Random(size));
+            BitPackedEngine sequential = new BitPackedEngine(size, size);
+            ParallelEngine parallel = new ParallelEngine(size, size, threads);
+            double seqRate = rate(sequential, soup, generations);
+            double parRate = rate(parallel, soup, generations);
+            parallel.shutdown();
+            System.out.printf("%10s %14.1f %14.1f %7.2fx%n", size + "x" + size, seqRate, parRate, parRate / seqRate);
+        }
+    }
+
+    /**
+     * method to time an engine over a number of generations after a short warm up
+     * @param engine the engine to time
+     * @param soup the starting state
+     * @param generations the number of generations to time
+     * @return generations per second
+     */
+    private static double rate(LifeEngine engine, boolean[][] soup, int generations) {
+        engine.load(soup);
+        for (int i = 0; i < Math.min(generations, 20); i++) {
+            engine.step();
+        }
+        engine.load(soup);
+        long start = System.nanoTime();
+        for (int i = 0; i < generations; i++) {
+            engine.step();
+        }
+        return generations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * method to fill a square board with cells that are alive half the time
+     * @param size the width and height of the board
+     * @param random the source of randomness
+     * @return the soup
+     */
+    static boolean[][] randomSoup(int size, Random random) {
+        boolean[][] soup = new boolean[size][size];
+        for (boolean[] row : soup) {
+            for (int col = 0; col < row.length; col++) {
+                row[col] = random.nextBoolean();
+            }
+        }
+        return soup;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * The edge behaviors a bounded board can have. The packed engines implement each one by filling their halo
+ * rows and columns once per generation, so the inner loop never checks an edge.
+ * @author Aaron Howe
+ * @version JDK 17
+ */
+public enum Topology {
+    // everything beyond the edge is dead
+    DEAD,
+    // the left edge wraps to the right and the top edge wraps to the bottom
+    TORUS,
+    // the left edge wraps to the right, the top edge wraps to the bottom flipped left to right
+    KLEIN,
+    // every edge cell is reflected, so the cell beyond the edge is the edge cell itself
+    MIRROR;
+
+    /**
+     * method to look up a topology by name, ignoring case
+     * @param name the name of the topology
+     * @return the topology
+     */
+    public static Topology parse(String name) {
+        try {
+            return valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown topology \"" + name + "\", expected one of dead, torus, klein, mirror");
+        }
+    }
+
+    /**
+     * method to check whether cells on one edge are neighbors of cells on the opposite edge
+     * @return true if the topology wraps around
+     */
+    public boolean wraps() {
+        return this == TORUS || this == KLEIN;
+    }
+}